@@ -0,0 +1,94 @@
+import Hls from 'hls.js';
+import type { LoaderCallbacks, LoaderConfiguration, LoaderContext } from 'hls.js';
+import { logger } from './logger';
+
+// how long a playlist request waits for a pushed version before it falls back to a regular request
+const PUSH_TIMEOUT = 6000;
+
+interface PushedPlaylist {
+  version: number;
+  playlist: string;
+}
+
+export class PlaylistFeed {
+  private readonly source: EventSource;
+  private latest: PushedPlaylist | null = null;
+  private delivered = 0;
+  private waiters: Array<() => void> = [];
+
+  constructor(readonly events: string, readonly playlist: string) {
+    this.source = new EventSource(events);
+    this.source.addEventListener('playlist', (event) => {
+      const pushed: PushedPlaylist = JSON.parse((event as MessageEvent).data);
+      if (this.latest && pushed.version <= this.latest.version) return;
+      this.latest = pushed;
+      this.waiters.splice(0).forEach((wake) => wake());
+    });
+    this.source.onerror = () => logger.debug('playlist event stream interrupted');
+  }
+
+  matches(url: string): boolean {
+    return url.split('?')[0] === this.playlist;
+  }
+
+  // resolves with the next version that has not been handed out yet, or null after the timeout
+  next(timeout: number, signal: { aborted: boolean }): Promise<string | null> {
+    return new Promise((resolve) => {
+      const take = () => {
+        if (!this.latest || this.latest.version <= this.delivered) return false;
+        this.delivered = this.latest.version;
+        resolve(this.latest.playlist);
+        return true;
+      };
+      if (take()) return;
+      const wake = () => {
+        clearTimeout(timer);
+        if (signal.aborted) return resolve(null);
+        if (!take()) this.waiters.push(wake);
+      };
+      const timer = setTimeout(() => {
+        this.waiters = this.waiters.filter((waiter) => waiter !== wake);
+        resolve(null);
+      }, timeout);
+      this.waiters.push(wake);
+    });
+  }
+
+  close() {
+    this.source.close();
+    this.waiters.splice(0).forEach((wake) => wake());
+  }
+}
+
+// playlist loader answering media playlist reloads from the event stream, anything else goes over the network
+export function createPushLoader(feed: PlaylistFeed) {
+  const Base = Hls.DefaultConfig.loader;
+  return class PushPlaylistLoader extends Base {
+    private signal = { aborted: false };
+
+    load(context: LoaderContext, config: LoaderConfiguration, callbacks: LoaderCallbacks<LoaderContext>) {
+      if (!feed.matches(context.url)) return super.load(context, config, callbacks);
+      const signal = (this.signal = { aborted: false });
+      const start = performance.now();
+      feed.next(PUSH_TIMEOUT, signal).then((playlist) => {
+        if (signal.aborted) return;
+        if (playlist === null) return super.load(context, config, callbacks);
+        const stats = this.stats;
+        stats.loading.start = start;
+        stats.loading.first = stats.loading.end = performance.now();
+        stats.loaded = stats.total = playlist.length;
+        callbacks.onSuccess({ url: context.url, data: playlist }, stats, context, null);
+      });
+    }
+
+    abort() {
+      this.signal.aborted = true;
+      super.abort();
+    }
+
+    destroy() {
+      this.signal.aborted = true;
+      super.destroy();
+    }
+  };
+}
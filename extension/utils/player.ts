@@ -1,9 +1,11 @@
 import Hls from 'hls.js';
 import { logger } from './logger';
 import { getLivestream } from "@/utils/api";
+import { createPushLoader, PlaylistFeed } from '@/utils/events';
 import { getSavedVolume, setSavedVolume } from '@/utils/storage';
 
 let currentHlsInstance: Hls | null = null;
+let currentFeed: PlaylistFeed | null = null;
 
 export async function modifyVideoElement() {
   const source: LiveSource | null = await getLivestream(window.location.href);
@@ -56,6 +58,11 @@ export async function modifyVideoElement() {
     currentHlsInstance = null;
   }
 
+  if (currentFeed) {
+    currentFeed.close();
+    currentFeed = null;
+  }
+
   const inject = document.createElement('video');
   inject.playsInline = true;
   inject.controls = true;
@@ -83,7 +90,11 @@ export async function modifyVideoElement() {
     // 3. buffer once or twice until we are stable with 2-4 seconds delay behind the actual stream
     // 4. if we fall behind further than 4 seconds liveMaxLatencyDuration: 4 will cause rebuffering
 
+    // playlist updates are pushed by local-server, reloads are answered as soon as a new version exists
+    const feed = source.events ? new PlaylistFeed(source.events, source.playlist) : null;
+
     const hls = new Hls({
+      ...(feed ? { pLoader: createPushLoader(feed) } : {}),
       lowLatencyMode: true,
       liveSyncDuration: 2.5,
       liveMaxLatencyDuration: 4,
@@ -97,7 +108,9 @@ export async function modifyVideoElement() {
     });
 
     currentHlsInstance = hls;
-    hls.loadSource(source.playlist);
+    currentFeed = feed;
+    // the master playlist lists every quality so hls.js can step down on a weak connection
+    hls.loadSource(source.master ?? source.playlist);
     hls.attachMedia(inject);
 
     hls.on(Hls.Events.ERROR, (_event, data) => {
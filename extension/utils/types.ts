@@ -1,6 +1,8 @@
 export interface LiveSource {
   live: boolean;
   playlist: string | null;
+  master?: string | null;
+  events?: string | null;
 }
 
 export interface LocationChangeDetail {
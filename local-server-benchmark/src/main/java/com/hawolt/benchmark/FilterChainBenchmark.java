@@ -0,0 +1,103 @@
+package com.hawolt.benchmark;
+
+import com.hawolt.metrics.Counter;
+import com.hawolt.playlist.MediaPlaylistWindow;
+import com.hawolt.playlist.filter.LineView;
+import com.hawolt.playlist.filter.SegmentFilter;
+import com.hawolt.playlist.filter.SegmentFilterChain;
+import com.hawolt.playlist.filter.SegmentFilters;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading a media playlist with a growing amount of filters. The {@code builtin} chain repeats the
+ * four built-in filters and therefore never has more than four distinct tags, the {@code synthetic} chain
+ * uses filters with a distinct tag each that opt out of segment callbacks, its cost should stay flat with
+ * the amount of filters since tag dispatch does not depend on how many tags are registered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterChainBenchmark {
+    private static final String[] BUILTIN = {"program-date-time", "stitched-ad", "amazon", "discontinuity"};
+
+    @Param({"0", "1", "4", "16"})
+    public int filters;
+
+    @Param({"media-ad.m3u8", "media-large.m3u8"})
+    public String fixture;
+
+    @Param({"builtin", "synthetic"})
+    public String kind;
+
+    private SegmentFilterChain chain;
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < filters; i++) {
+            names.add(BUILTIN[i % BUILTIN.length]);
+        }
+        this.chain = "synthetic".equals(kind) ? synthetic(filters) : SegmentFilters.create(String.join(",", names));
+        this.body = Fixtures.bytes(fixture);
+    }
+
+    /**
+     * The chain is built once per trial like it is once per rendition, filters are reset by every update.
+     */
+    @Benchmark
+    public byte[] update() throws Exception {
+        MediaPlaylistWindow window = new MediaPlaylistWindow(null, chain);
+        window.update(body);
+        return window.getPlaylist().getBody();
+    }
+
+    private static SegmentFilterChain synthetic(int amount) {
+        SegmentFilter[] filters = new SegmentFilter[amount];
+        Counter[] counters = new Counter[amount];
+        for (int i = 0; i < amount; i++) {
+            filters[i] = new SyntheticFilter(i);
+            counters[i] = new Counter();
+        }
+        return new SegmentFilterChain(filters, counters);
+    }
+
+    /**
+     * Registers a tag of its own that does not occur upstream and is not interested in segments.
+     */
+    private static class SyntheticFilter implements SegmentFilter {
+        private final byte[][] tags;
+        private int seen;
+
+        private SyntheticFilter(int index) {
+            this.tags = new byte[][]{LineView.ascii(String.format("#EXT-X-SYNTHETIC-%s:", index))};
+        }
+
+        @Override
+        public byte[][] getTags() {
+            return tags;
+        }
+
+        @Override
+        public void onTag(LineView line) {
+            seen++;
+        }
+
+        @Override
+        public boolean accept(LineView uri) {
+            return true;
+        }
+
+        @Override
+        public boolean isSegmentAware() {
+            return false;
+        }
+    }
+}
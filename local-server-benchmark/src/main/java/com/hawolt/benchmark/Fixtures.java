@@ -0,0 +1,65 @@
+package com.hawolt.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+public class Fixtures {
+
+    public static byte[] bytes(String name) {
+        try (InputStream stream = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (stream == null) throw new IllegalArgumentException(String.format("UNKNOWN_FIXTURE:%s", name));
+            return stream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String string(String name) {
+        return new String(bytes(name), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generates consecutive polls of a rolling media playlist, every poll advances the window by one segment
+     * and every {@code adInterval} segments an ad break of {@code adLength} segments is stitched in.
+     */
+    public static byte[][] rolling(int polls, int window, int adInterval, int adLength) {
+        byte[][] rolling = new byte[polls][];
+        for (int poll = 0; poll < polls; poll++) {
+            rolling[poll] = media(poll, window, adInterval, adLength).getBytes(StandardCharsets.UTF_8);
+        }
+        return rolling;
+    }
+
+    public static String media(long first, int window, int adInterval, int adLength) {
+        return media("https://video-edge-c2a1b4.fra02.abs.hls.ttvnw.net/v1/segment", first, window, adInterval, adLength);
+    }
+
+    public static String media(String base, long first, int window, int adInterval, int adLength) {
+        StringBuilder builder = new StringBuilder()
+                .append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:3\n")
+                .append("#EXT-X-TARGETDURATION:6\n")
+                .append("#EXT-X-MEDIA-SEQUENCE:").append(first).append('\n');
+        boolean previous = false;
+        for (long sequence = first; sequence < first + window; sequence++) {
+            boolean ad = adInterval > 0 && sequence % adInterval < adLength;
+            if (ad != previous) builder.append("#EXT-X-DISCONTINUITY\n");
+            if (ad && !previous) {
+                builder.append("#EXT-X-DATERANGE:ID=\"stitched-ad-").append(sequence)
+                        .append("\",CLASS=\"twitch-stitched-ad\",START-DATE=\"2023-11-14T22:13:00.000Z\",DURATION=30.000\n");
+            }
+            previous = ad;
+            if (ad) {
+                builder.append("#EXTINF:2.000,Amazon|4215263781\n")
+                        .append(base).append("/ad-").append(sequence).append(".ts\n");
+            } else {
+                builder.append("#EXT-X-PROGRAM-DATE-TIME:2023-11-14T22:13:00.000Z\n")
+                        .append("#EXTINF:2.000,live\n")
+                        .append(base).append('/').append(sequence).append(".ts\n");
+            }
+        }
+        return builder.toString();
+    }
+}
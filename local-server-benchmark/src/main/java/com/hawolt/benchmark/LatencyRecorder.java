@@ -0,0 +1,34 @@
+package com.hawolt.benchmark;
+
+import org.json.JSONObject;
+
+import java.util.Arrays;
+
+public class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int size, errors;
+
+    public synchronized void record(long nanos, boolean success) {
+        if (!success) errors++;
+        if (size == samples.length) samples = Arrays.copyOf(samples, size << 1);
+        samples[size++] = nanos;
+    }
+
+    public synchronized JSONObject summary() {
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        JSONObject object = new JSONObject();
+        object.put("count", size);
+        object.put("errors", errors);
+        object.put("p50Ms", percentile(sorted, 0.50));
+        object.put("p99Ms", percentile(sorted, 0.99));
+        object.put("maxMs", percentile(sorted, 1.00));
+        return object;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0D;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000D;
+    }
+}
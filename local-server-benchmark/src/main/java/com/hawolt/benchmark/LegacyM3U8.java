@@ -0,0 +1,27 @@
+package com.hawolt.benchmark;
+
+import java.util.HashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex based attribute parser that {@link com.hawolt.stream.playlist.M3U8} replaced, kept for comparison.
+ */
+public class LegacyM3U8 extends HashMap<String, String> {
+    private static final Pattern pattern = Pattern.compile(
+            "([a-zA-Z0-9\\-]+)=((\"[^\"]*\")|([^,]*))(,|$)"
+    );
+
+    public LegacyM3U8(String line) {
+        String tags = line.split(":", 2)[1];
+        Matcher matcher = pattern.matcher(tags);
+        while (matcher.find()) {
+            String key = matcher.group(1).trim();
+            String value = matcher.group(2).trim();
+            if (value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            put(key, value);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.hawolt.benchmark;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The String based media playlist filter that {@link com.hawolt.playlist.MediaPlaylistWindow} replaced, kept for comparison.
+ */
+public class LegacyMediaFilter {
+
+    public static String filter(byte[] body) {
+        String temporary = new String(body, StandardCharsets.UTF_8);
+        String[] segments = temporary.split("\n");
+        if (!segments[0].equals("#EXTM3U")) throw new IllegalStateException("BAD_M3U8");
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            builder.append(segments[i]).append(System.lineSeparator());
+        }
+        for (int i = 0; i < segments.length; i++) {
+            if (!segments[i].startsWith("#EXT-X-PROGRAM-DATE-TIME")) continue;
+            builder.append(segments[i + 1]).append(System.lineSeparator());
+            builder.append(segments[i + 2]).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package com.hawolt.benchmark;
+
+import io.javalin.Javalin;
+import org.json.JSONObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Opens N channels against an in-process local-server backed by a {@link TwitchStandIn} and keeps M playlist
+ * pollers per channel busy, prints route latencies, upstream request counts and thread/heap usage as JSON.
+ * <p>
+ * usage: {@code java -cp benchmarks.jar com.hawolt.benchmark.LoadHarness [channels] [pollers] [seconds]}
+ */
+public class LoadHarness {
+    private static final long POLL_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+    public static void main(String[] args) throws Exception {
+        int channels = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int pollers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        TwitchStandIn upstream = new TwitchStandIn(15, 60, 15).start(0);
+        Javalin server = LocalServer.start(upstream);
+        String base = LocalServer.getBaseURL();
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        HttpClient client = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        LatencyRecorder open = new LatencyRecorder(), playlist = new LatencyRecorder();
+        List<CompletableFuture<?>> opens = new ArrayList<>();
+        for (int i = 0; i < channels; i++) {
+            opens.add(timed(client, String.format("%s/live/channel%s", base, i), open));
+        }
+        CompletableFuture.allOf(opens.toArray(CompletableFuture[]::new)).join();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+        for (int i = 0; i < channels; i++) {
+            String url = String.format("%s/live/channel%s/playlist.m3u8", base, i);
+            for (int j = 0; j < pollers; j++) {
+                scheduler.scheduleAtFixedRate(
+                        () -> timed(client, url, playlist),
+                        ThreadLocalRandom.current().nextLong(POLL_INTERVAL),
+                        POLL_INTERVAL,
+                        TimeUnit.MILLISECONDS
+                );
+            }
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        scheduler.shutdownNow();
+
+        JSONObject result = new JSONObject();
+        result.put("channels", channels);
+        result.put("pollers", pollers);
+        result.put("seconds", seconds);
+        result.put("open", open.summary());
+        result.put("playlist", playlist.summary());
+        result.put("upstream", new JSONObject(upstream.getRequestCounts()));
+        result.put("threads", threads.getThreadCount());
+        result.put("peakThreads", threads.getPeakThreadCount());
+        result.put("heapUsedKiB", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1024);
+        System.out.println(result.toString());
+
+        server.stop();
+        upstream.stop();
+        executor.shutdownNow();
+        System.exit(0);
+    }
+
+    private static CompletableFuture<?> timed(HttpClient client, String url, LatencyRecorder recorder) {
+        long start = System.nanoTime();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(10)).GET().build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).handle((response, throwable) -> {
+            recorder.record(System.nanoTime() - start, throwable == null && response.statusCode() == 200);
+            return null;
+        });
+    }
+}
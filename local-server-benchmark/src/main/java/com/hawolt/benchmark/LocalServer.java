@@ -0,0 +1,37 @@
+package com.hawolt.benchmark;
+
+import com.hawolt.Main;
+import com.hawolt.Settings;
+import io.javalin.Javalin;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/**
+ * Boots local-server in-process against a {@link TwitchStandIn}, the upstream properties have to be set
+ * before any local-server class reads {@link Settings}.
+ */
+public class LocalServer {
+
+    public static Javalin start(TwitchStandIn upstream) {
+        System.setProperty("noads.twitch.www", upstream.getBaseURL());
+        System.setProperty("noads.twitch.gql", upstream.getBaseURL());
+        System.setProperty("noads.twitch.usher", upstream.getBaseURL());
+        System.setProperty("noads.port", String.valueOf(port()));
+        System.setProperty("noads.state.file", "");
+        return Main.create().start(Settings.PORT);
+    }
+
+    public static String getBaseURL() {
+        return String.format("http://127.0.0.1:%s", Settings.PORT);
+    }
+
+    private static int port() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
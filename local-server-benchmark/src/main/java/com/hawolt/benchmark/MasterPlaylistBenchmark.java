@@ -0,0 +1,47 @@
+package com.hawolt.benchmark;
+
+import com.hawolt.stream.playlist.M3U8;
+import com.hawolt.stream.twitch.TwitchEXTM3U;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MasterPlaylistBenchmark {
+    private String[] attributes;
+    private String master;
+
+    @Setup
+    public void setup() {
+        this.master = Fixtures.string("master.m3u8");
+        this.attributes = Arrays.stream(master.split("\n"))
+                .filter(line -> line.startsWith("#EXT-X-MEDIA:") || line.startsWith("#EXT-X-STREAM-INF:"))
+                .toArray(String[]::new);
+    }
+
+    @Benchmark
+    public TwitchEXTM3U parseMaster() {
+        return new TwitchEXTM3U(master);
+    }
+
+    @Benchmark
+    public void attributesTokenizer(Blackhole blackhole) {
+        for (String line : attributes) {
+            blackhole.consume(new M3U8(line));
+        }
+    }
+
+    @Benchmark
+    public void attributesLegacyRegex(Blackhole blackhole) {
+        for (String line : attributes) {
+            blackhole.consume(new LegacyM3U8(line));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.hawolt.benchmark;
+
+import com.hawolt.playlist.MediaPlaylistWindow;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single media playlist poll, run with {@code -prof gc} to compare allocations per poll
+ * between the legacy String filter, a cold window and a window in steady state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MediaPlaylistBenchmark {
+    private static final int POLLS = 4096;
+
+    @Param({"media.m3u8", "media-ad.m3u8", "media-large.m3u8"})
+    public String fixture;
+
+    private MediaPlaylistWindow window;
+    private byte[][] rolling;
+    private byte[] body;
+    private int poll;
+
+    @Setup
+    public void setup() {
+        this.body = Fixtures.bytes(fixture);
+        this.rolling = Fixtures.rolling(POLLS, 15, 60, 15);
+        this.window = new MediaPlaylistWindow();
+    }
+
+    @Benchmark
+    public String legacyFilter() {
+        return LegacyMediaFilter.filter(body);
+    }
+
+    @Benchmark
+    public byte[] windowCold() throws Exception {
+        MediaPlaylistWindow window = new MediaPlaylistWindow();
+        window.update(body);
+        return window.getPlaylist().getBody();
+    }
+
+    @Benchmark
+    public byte[] windowSteadyState() throws Exception {
+        if (poll == POLLS) {
+            this.window = new MediaPlaylistWindow();
+            this.poll = 0;
+        }
+        window.update(rolling[poll++]);
+        return window.getPlaylist().getBody();
+    }
+}
@@ -0,0 +1,49 @@
+package com.hawolt.benchmark;
+
+import io.javalin.Javalin;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of serving {@code /live/{username}/playlist.m3u8} to concurrent players,
+ * local-server runs in-process and polls a {@link TwitchStandIn}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class PlaylistRouteBenchmark {
+    private TwitchStandIn upstream;
+    private HttpRequest request;
+    private HttpClient client;
+    private Javalin server;
+
+    @Setup
+    public void setup() throws Exception {
+        this.upstream = new TwitchStandIn(15, 60, 15).start(0);
+        this.server = LocalServer.start(upstream);
+        this.client = HttpClient.newHttpClient();
+        String base = LocalServer.getBaseURL();
+        client.send(HttpRequest.newBuilder(URI.create(base + "/live/benchmark")).build(), HttpResponse.BodyHandlers.discarding());
+        this.request = HttpRequest.newBuilder(URI.create(base + "/live/benchmark/playlist.m3u8")).build();
+    }
+
+    @TearDown
+    public void teardown() {
+        server.stop();
+        upstream.stop();
+    }
+
+    @Benchmark
+    public byte[] playlist() throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+}
@@ -0,0 +1,106 @@
+package com.hawolt.benchmark;
+
+import com.hawolt.Settings;
+import com.hawolt.metrics.Histogram;
+import com.hawolt.poll.PollHandle;
+import com.hawolt.poll.PollScheduler;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports thread count and resident memory for 10, 100 and 1000 simulated channels, once with the
+ * shared {@link PollScheduler} and once with the previous thread pool per channel. The shared run also reports
+ * the dispatch lag, the time between a poll being due and it actually starting, and the amount of shed polls,
+ * a flat thread count alone hides a backlog. Prints one JSON object per run.
+ * <p>
+ * usage: {@code java -cp benchmarks.jar com.hawolt.benchmark.PollSchedulerFootprint [channels...]}
+ */
+public class PollSchedulerFootprint {
+    private static final long INTERVAL = TimeUnit.SECONDS.toMillis(2);
+    private static final long LATENCY = 50L;
+    private static final long SETTLE = TimeUnit.SECONDS.toMillis(10);
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] channels = args.length == 0 ? new int[]{10, 100, 1000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            channels[i] = Integer.parseInt(args[i]);
+        }
+        for (int amount : channels) {
+            System.out.println(shared(amount));
+            System.out.println(legacy(amount));
+        }
+    }
+
+    private static JSONObject shared(int channels) throws InterruptedException {
+        PollScheduler scheduler = new PollScheduler(Settings.POLL_THREADS, Settings.POLL_QUEUE, new Histogram());
+        List<PollHandle> handles = new ArrayList<>();
+        for (int i = 0; i < channels; i++) {
+            handles.add(scheduler.register(() -> {
+                simulate();
+                return INTERVAL;
+            }, i % INTERVAL));
+        }
+        JSONObject result = sample("shared", channels);
+        Histogram lag = scheduler.getDispatchLag();
+        result.put("lagP50Micros", lag.quantile(0.5));
+        result.put("lagP99Micros", lag.quantile(0.99));
+        result.put("lagMaxMicros", lag.quantile(1.0));
+        result.put("shed", scheduler.getShedCount());
+        handles.forEach(PollHandle::cancel);
+        scheduler.shutdown();
+        return result;
+    }
+
+    private static JSONObject legacy(int channels) throws InterruptedException {
+        List<ScheduledExecutorService> executors = new ArrayList<>();
+        for (int i = 0; i < channels; i++) {
+            ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+            executor.scheduleAtFixedRate(PollSchedulerFootprint::simulate, i % INTERVAL, INTERVAL, TimeUnit.MILLISECONDS);
+            executors.add(executor);
+        }
+        JSONObject result = sample("legacy", channels);
+        executors.forEach(ScheduledExecutorService::shutdownNow);
+        return result;
+    }
+
+    private static JSONObject sample(String mode, int channels) throws InterruptedException {
+        Thread.sleep(SETTLE);
+        System.gc();
+        JSONObject object = new JSONObject();
+        object.put("mode", mode);
+        object.put("channels", channels);
+        object.put("threads", ManagementFactory.getThreadMXBean().getThreadCount());
+        object.put("rssKiB", rss());
+        object.put("heapUsedKiB", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1024);
+        return object;
+    }
+
+    private static void simulate() {
+        try {
+            Thread.sleep(LATENCY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long rss() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (!line.startsWith("VmRSS:")) continue;
+                return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not available outside of linux
+        }
+        return -1L;
+    }
+}
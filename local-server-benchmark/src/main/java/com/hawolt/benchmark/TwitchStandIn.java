@@ -0,0 +1,148 @@
+package com.hawolt.benchmark;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Offline stand-in for www.twitch.tv, gql.twitch.tv and usher.ttvnw.net. Serves a channel page that
+ * contains everything the configuration scrapers look for, playback tokens, master playlists and rolling
+ * media playlists with stitched ad breaks. Point local-server at it with the {@code noads.twitch.*} properties.
+ * <p>
+ * usage: {@code java -cp benchmarks.jar com.hawolt.benchmark.TwitchStandIn [port]}
+ */
+public class TwitchStandIn {
+    private static final String CLIENT_ID = "kimne78kx3ncx6brgo4mv6wki5h1ko";
+    private static final String QUERY = "query PlaybackAccessToken_Template($login: String!, $isLive: Boolean!, $vodID: ID!, $isVod: Boolean!, $playerType: String!, $platform: String!) { streamPlaybackAccessToken(channelName: $login, params: {platform: $platform, playerBackend: \"mediaplayer\", playerType: $playerType}) @include(if: $isLive) { value signature __typename } }";
+    private static final long SEGMENT_DURATION = TimeUnit.SECONDS.toMillis(2);
+    private static final String[][] VARIANTS = {
+            {"chunked", "1080p60 (source)", "8534030", "1920x1080", "60.000"},
+            {"720p60", "720p60", "3422999", "1280x720", "60.000"},
+            {"480p30", "480p30", "1427999", "852x480", "30.000"},
+            {"160p30", "160p30", "230000", "284x160", "30.000"}
+    };
+
+    public static void main(String[] args) {
+        TwitchStandIn upstream = new TwitchStandIn(15, 60, 15).start(args.length > 0 ? Integer.parseInt(args[0]) : 61617);
+        System.out.printf(
+                "-Dnoads.twitch.www=%1$s -Dnoads.twitch.gql=%1$s -Dnoads.twitch.usher=%1$s%n",
+                upstream.getBaseURL()
+        );
+    }
+
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final long start = System.currentTimeMillis();
+    private final byte[] segment = new byte[188 * 1024];
+    private final int window, adInterval, adLength;
+    private Javalin app;
+
+    public TwitchStandIn(int window, int adInterval, int adLength) {
+        this.adInterval = adInterval;
+        this.adLength = adLength;
+        this.window = window;
+    }
+
+    public TwitchStandIn start(int port) {
+        this.app = Javalin.create()
+                .get("/", this::page)
+                .get("/{channel}", this::page)
+                .post("/gql", this::gql)
+                .get("/api/channel/hls/{channel}.m3u8", this::master)
+                .get("/media/{channel}/{variant}.m3u8", this::media)
+                .get("/segment/{channel}/{variant}/{name}", context -> {
+                    count("segment");
+                    context.contentType("video/mp2t").result(segment);
+                })
+                .start(port);
+        return this;
+    }
+
+    private void page(Context context) {
+        count("www");
+        context.cookie("unique_id", UUID.randomUUID().toString().replace("-", ""));
+        context.contentType("text/html").result(String.format(
+                "<html><script>window.__twilightSettings={clientId=\"%s\"};var q={query='%s'};</script></html>",
+                CLIENT_ID,
+                QUERY
+        ));
+    }
+
+    private void gql(Context context) {
+        count("gql");
+        String body = context.body().trim();
+        if (body.startsWith("[")) {
+            JSONArray operations = new JSONArray(body), responses = new JSONArray();
+            for (int i = 0; i < operations.length(); i++) {
+                responses.put(token(operations.getJSONObject(i)));
+            }
+            context.result(responses.toString());
+        } else {
+            context.result(token(new JSONObject(body)).toString());
+        }
+    }
+
+    private JSONObject token(JSONObject operation) {
+        String channel = operation.getJSONObject("variables").getString("login");
+        JSONObject value = new JSONObject();
+        value.put("channel", channel);
+        value.put("expires", TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + TimeUnit.MINUTES.toSeconds(20));
+        JSONObject token = new JSONObject();
+        token.put("value", value.toString());
+        token.put("signature", UUID.randomUUID().toString());
+        JSONObject data = new JSONObject();
+        data.put("streamPlaybackAccessToken", token);
+        JSONObject response = new JSONObject();
+        response.put("data", data);
+        return response;
+    }
+
+    private void master(Context context) {
+        count("usher-master");
+        String channel = context.pathParam("channel");
+        StringBuilder builder = new StringBuilder("#EXTM3U\n");
+        for (String[] variant : VARIANTS) {
+            builder.append(String.format("#EXT-X-MEDIA:TYPE=VIDEO,GROUP-ID=\"%s\",NAME=\"%s\",AUTOSELECT=YES,DEFAULT=YES%n", variant[0], variant[1]))
+                    .append(String.format("#EXT-X-STREAM-INF:BANDWIDTH=%s,RESOLUTION=%s,CODECS=\"avc1.64002A,mp4a.40.2\",VIDEO=\"%s\",FRAME-RATE=%s%n", variant[2], variant[3], variant[0], variant[4]))
+                    .append(String.format("%s/media/%s/%s.m3u8%n", getBaseURL(), channel, variant[0]));
+        }
+        context.contentType("application/vnd.apple.mpegurl").result(builder.toString());
+    }
+
+    private void media(Context context) {
+        count("usher-media");
+        String channel = context.pathParam("channel"), variant = context.pathParam("variant");
+        long first = (System.currentTimeMillis() - start) / SEGMENT_DURATION;
+        String base = String.format("%s/segment/%s/%s", getBaseURL(), channel, variant);
+        StringBuilder builder = new StringBuilder(Fixtures.media(base, first, window, adInterval, adLength));
+        for (long sequence = first + window; sequence < first + window + 2; sequence++) {
+            builder.append("#EXT-X-TWITCH-PREFETCH:").append(base).append('/').append(sequence).append(".ts\n");
+        }
+        context.contentType("application/vnd.apple.mpegurl").result(builder.toString());
+    }
+
+    private void count(String endpoint) {
+        requests.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+    }
+
+    public Map<String, Long> getRequestCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        requests.forEach((endpoint, adder) -> counts.put(endpoint, adder.sum()));
+        return counts;
+    }
+
+    public String getBaseURL() {
+        return String.format("http://127.0.0.1:%s", app.port());
+    }
+
+    public void stop() {
+        app.stop();
+    }
+}
@@ -0,0 +1,49 @@
+package com.hawolt.benchmark;
+
+import com.hawolt.stream.playlist.PlaylistM3U8;
+import com.hawolt.stream.twitch.TwitchEXTM3U;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VariantSelectionBenchmark {
+    private List<LegacyM3U8> legacy;
+    private TwitchEXTM3U master;
+
+    @Setup
+    public void setup() {
+        String plain = Fixtures.string("master.m3u8");
+        this.master = new TwitchEXTM3U(plain);
+        this.legacy = Arrays.stream(plain.split("\n"))
+                .filter(line -> line.startsWith("#EXT-X-STREAM-INF:"))
+                .map(LegacyM3U8::new)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Optional<PlaylistM3U8> highestBandwidth() {
+        return master.getCustomPlaylist(Comparator.comparingLong(PlaylistM3U8::getBandwidth).reversed());
+    }
+
+    @Benchmark
+    public Optional<LegacyM3U8> highestBandwidthLegacy() {
+        return legacy.stream()
+                .filter(stream -> stream.containsKey("BANDWIDTH"))
+                .min((p1, p2) -> {
+                    long bandwidth1 = Long.parseLong(p1.get("BANDWIDTH"));
+                    long bandwidth2 = Long.parseLong(p2.get("BANDWIDTH"));
+                    return Long.compare(bandwidth2, bandwidth1);
+                });
+    }
+}
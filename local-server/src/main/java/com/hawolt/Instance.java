@@ -2,131 +2,313 @@ package com.hawolt;
 
 import com.hawolt.custom.TwitchM3U8Exception;
 import com.hawolt.ionhttp.IonClient;
-import com.hawolt.ionhttp.misc.Threading;
-import com.hawolt.ionhttp.request.IonRequest;
-import com.hawolt.ionhttp.request.IonResponse;
 import com.hawolt.logger.Logger;
+import com.hawolt.metrics.Metrics;
 import com.hawolt.playlist.InstanceCallback;
+import com.hawolt.playlist.PlaylistSnapshot;
+import com.hawolt.poll.PollCadence;
+import com.hawolt.poll.PollHandle;
+import com.hawolt.poll.PollScheduler;
+import com.hawolt.poll.Poller;
+import com.hawolt.segment.SegmentProxy;
 import com.hawolt.stream.exceptions.BadTwitchChannelException;
+import com.hawolt.stream.exceptions.TwitchClientIdException;
 import com.hawolt.stream.exceptions.TwitchCookieException;
-import com.hawolt.stream.exceptions.TwitchException;
 import com.hawolt.stream.exceptions.TwitchStreamOffline;
+import com.hawolt.stream.exceptions.TwitchTokenExpiredException;
 import com.hawolt.stream.instance.impl.DefaultInstanceSupplier;
 import com.hawolt.stream.playlist.PlaylistM3U8;
+import com.hawolt.stream.twitch.TwitchEXTM3U;
 import com.hawolt.stream.twitch.TwitchStream;
+import com.hawolt.stream.twitch.TwitchTokenCache;
+import com.hawolt.upstream.CircuitOpenException;
+import com.hawolt.upstream.RetryBudget;
+import io.javalin.http.Context;
 import io.javalin.http.Handler;
+import io.javalin.http.sse.SseClient;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.*;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
-public class Instance implements Runnable {
+public class Instance implements Poller {
+    private static final long READINESS_TIMEOUT = TimeUnit.SECONDS.toMillis(3);
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toMillis(5);
 
     public static Instance create(String username, InstanceCallback callback) {
         return new Instance(username, callback);
     }
 
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final Map<Integer, Rendition> renditions = new ConcurrentHashMap<>();
+    private final CompletableFuture<Boolean> readiness = new CompletableFuture<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final PollCadence cadence = new PollCadence();
     private final InstanceCallback callback;
-    private final ScheduledFuture<?> future;
+    private final PollHandle handle;
     private final TwitchStream twitch;
     private final String username;
 
-    private long lastPlaylistRequest = System.currentTimeMillis();
-    private PlaylistM3U8 usher = null;
-    private String playlist;
+    private volatile long lastAccess = System.currentTimeMillis();
+    private volatile List<PlaylistM3U8> variants;
+    private volatile PlaylistSnapshot master;
+    private volatile CompletableFuture<TwitchEXTM3U> pending;
+    private volatile Rendition primary;
+    private volatile boolean running = true;
 
     public Instance(String username, InstanceCallback callback) {
         this.username = username;
         this.callback = callback;
         this.twitch = TwitchStream.load(new DefaultInstanceSupplier(username));
-        this.future = scheduler.scheduleAtFixedRate(this, 0, 2, TimeUnit.SECONDS);
+        this.handle = PollScheduler.getGlobalScheduler().register(this, SWEEP_INTERVAL);
+        PollScheduler.getGlobalScheduler().execute(this::start);
     }
 
     @Override
-    public void run() {
-        try {
-            execute();
-        } catch (BadTwitchChannelException e) {
+    public long poll() {
+        sweep();
+        return running ? SWEEP_INTERVAL : -1L;
+    }
+
+    private void start() {
+        if (!running) return;
+        CompletableFuture<TwitchEXTM3U> pending = twitch.loadAsync();
+        this.pending = pending;
+        pending.whenComplete((master, throwable) -> {
+            if (throwable == null && setup(master.getVariants())) return;
+            Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+            if (cause instanceof CancellationException) return;
+            if (cause != null) {
+                Exception e = cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+                Metrics.error(e);
+                handle(e);
+            }
+            cadence.onFailure();
+            if (!running) return;
+            long delay = cadence.next();
+            if (cause instanceof CircuitOpenException) {
+                delay = Math.max(delay, ((CircuitOpenException) cause).getRetryAfter());
+            }
+            PollScheduler.getGlobalScheduler().register(this::retry, delay);
+        });
+    }
+
+    /**
+     * Retries are drawn from the global retry budget, a denied retry backs off further instead of
+     * adding to the load on an upstream that is already struggling.
+     */
+    private long retry() {
+        if (!running) return -1L;
+        if (RetryBudget.getGlobalBudget().tryRetry()) {
+            start();
+            return -1L;
+        }
+        cadence.onFailure();
+        return cadence.next();
+    }
+
+    void handle(Exception e) {
+        if (e instanceof BadTwitchChannelException) {
             Logger.error(e); // TODO REMOVE
             shutdown();
-        } catch (TwitchException e) {
-            if (e instanceof TwitchStreamOffline) shutdown();
-            else if (e instanceof TwitchM3U8Exception) shutdown();
-            else if (e instanceof TwitchCookieException) Logger.error(e.getMessage());
-            else Logger.error(e);
-        } catch (IOException e) {
+        } else if (e instanceof TwitchStreamOffline || e instanceof TwitchTokenExpiredException) {
+            TwitchTokenCache.getGlobalCache().invalidate(username);
+            shutdown();
+        } else if (e instanceof TwitchM3U8Exception) {
+            shutdown();
+        } else if (e instanceof TwitchCookieException || e instanceof TwitchClientIdException) {
+            Logger.error("{} for {}", e.getMessage(), username);
+        } else if (e instanceof CircuitOpenException) {
+            Logger.debug("[upstream] {} for {}", e.getMessage(), username);
+        } else if (e instanceof IOException || e instanceof TimeoutException) {
+            Logger.warn("[upstream] {} for {}: {}", e.getClass().getSimpleName(), username, e.getMessage());
+        } else if (e instanceof JSONException) {
+            shutdown();
             Logger.error(e); // TODO REMOVE
-        } catch (Exception e) {
-            if (e instanceof JSONException) {
-                shutdown();
-                Logger.error(e); // TODO REMOVE
-            } else {
-                Logger.error(e);
-            }
+        } else {
+            Logger.error(e);
         }
     }
 
-    private void shutdown() {
+    public void shutdown() {
+        if (!running) return;
+        this.running = false;
         Logger.debug("stop loading playlist for {}", username);
+        this.readiness.complete(false);
         this.callback.onStreamUnavailable(username);
-        this.future.cancel(true);
-        this.scheduler.shutdown();
-    }
-
-    public void execute() throws Exception {
-        if (usher == null) fetch();
-        if (usher == null) return;
-        if (System.currentTimeMillis() - lastPlaylistRequest >= TimeUnit.MINUTES.toMillis(1)) shutdown();
-        final IonClient client = twitch.getClient();
-        IonRequest request = IonRequest.on(usher.getURL()).get();
-        try (IonResponse response = client.execute(request)) {
-            if (response.code() == 404) throw new TwitchStreamOffline("PLAYLIST_404");
-            String temporary = new String(response.body(), StandardCharsets.UTF_8);
-            String[] segments = temporary.split("\n");
-            if (!segments[0].equals("#EXTM3U")) throw new TwitchM3U8Exception(String.join(":", "BAD_M3U8", temporary));
-            StringBuilder builder = new StringBuilder();
-            for (int i = 0; i < 4; i++) {
-                builder.append(segments[i]).append(System.lineSeparator());
-            }
-            for (int i = 0; i < segments.length; i++) {
-                if (!segments[i].startsWith("#EXT-X-PROGRAM-DATE-TIME")) continue;
-                builder.append(segments[i + 1]).append(System.lineSeparator());
-                builder.append(segments[i + 2]).append(System.lineSeparator());
-            }
-            this.playlist = builder.toString();
+        if (handle != null) this.handle.cancel();
+        if (pending != null) this.pending.cancel(true);
+        this.renditions.values().forEach(Rendition::stop);
+        this.renditions.clear();
+    }
+
+    private boolean setup(List<PlaylistM3U8> available) {
+        // audio-only variants are left out so ABR never switches the player to a blank picture
+        List<PlaylistM3U8> variants = available.stream().filter(variant -> variant.getHeight() > 0).collect(Collectors.toList());
+        if (variants.isEmpty()) variants = available;
+        if (variants.isEmpty()) return false;
+        int best = 0;
+        for (int i = 1; i < variants.size(); i++) {
+            if (variants.get(i).getBandwidth() > variants.get(best).getBandwidth()) best = i;
         }
+        this.variants = variants;
+        this.master = render(variants, best);
+        this.primary = getRendition(best);
+        if (primary != null) {
+            primary.setStandby(StandbySource.create(this, twitch, primary.getVariant()));
+            primary.getReadiness().thenAccept(readiness::complete);
+        }
+        return true;
     }
 
-    private void fetch() throws TwitchException, IOException {
-        usher = twitch.load().getCustomPlaylist((p1, p2) -> {
-            long bandwidth1 = Long.parseLong(p1.getStream().get("BANDWIDTH"));
-            long bandwidth2 = Long.parseLong(p2.getStream().get("BANDWIDTH"));
-            return Long.compare(bandwidth2, bandwidth1);
-        }).orElse(null);
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Integer, Rendition> entry : renditions.entrySet()) {
+            Rendition rendition = entry.getValue();
+            if (rendition == primary && rendition.isRunning()) continue;
+            if (rendition.isRunning() && now - rendition.getLastAccess() < Settings.RENDITION_IDLE) continue;
+            Logger.debug("stop idle rendition {} for {}", entry.getKey(), username);
+            rendition.stop();
+            renditions.remove(entry.getKey(), rendition);
+        }
     }
 
+    private static PlaylistSnapshot render(List<PlaylistM3U8> variants, int primary) {
+        StringBuilder builder = new StringBuilder("#EXTM3U\n#EXT-X-INDEPENDENT-SEGMENTS\n");
+        for (int i = 0; i < variants.size(); i++) {
+            PlaylistM3U8 variant = variants.get(i);
+            builder.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(variant.getBandwidth());
+            if (variant.getWidth() > 0 && variant.getHeight() > 0) {
+                builder.append(",RESOLUTION=").append(variant.getWidth()).append('x').append(variant.getHeight());
+            }
+            if (variant.getCodecs() != null) builder.append(",CODECS=\"").append(variant.getCodecs()).append('"');
+            if (variant.getFrameRate() > 0) {
+                builder.append(",FRAME-RATE=").append(String.format(Locale.ROOT, "%.3f", variant.getFrameRate()));
+            }
+            builder.append('\n').append(i == primary ? "playlist.m3u8" : i + "/playlist.m3u8").append('\n');
+        }
+        return new PlaylistSnapshot(System.currentTimeMillis(), 1, builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
 
     public Handler handler = context -> {
         context.header("Content-Type", "application/json");
-        for (int i = 0; i < 150; i++) {
-            if (playlist != null) break;
-            Threading.snooze(20);
-        }
-        JSONObject object = new JSONObject();
-        boolean online = playlist != null;
-        object.put("live", online);
-        if (online) {
-            object.put("playlist", String.format("http://127.0.0.1:61616/live/%s/playlist.m3u8", getUsername()));
-        }
-        context.result(object.toString());
+        context.future(() -> await(context)
+                .thenAccept(online -> {
+                    JSONObject object = new JSONObject();
+                    object.put("live", online);
+                    if (online) {
+                        object.put("playlist", String.format("http://127.0.0.1:%s/live/%s/playlist.m3u8", Settings.PORT, getUsername()));
+                        object.put("master", String.format("http://127.0.0.1:%s/live/%s/master.m3u8", Settings.PORT, getUsername()));
+                        object.put("events", String.format("http://127.0.0.1:%s/live/%s/events", Settings.PORT, getUsername()));
+                    }
+                    context.result(object.toString());
+                })
+        );
     };
 
-    public String getPlaylist() {
-        this.lastPlaylistRequest = System.currentTimeMillis();
-        return playlist;
+    /**
+     * Waits for the instance to become ready on behalf of a single client, when the last waiting client
+     * disconnects before the instance is ready the instance is shut down, which cancels the upstream chain.
+     */
+    private CompletableFuture<Boolean> await(Context context) {
+        waiting.incrementAndGet();
+        CompletableFuture<Boolean> wait = readiness.copy().completeOnTimeout(false, READINESS_TIMEOUT, TimeUnit.MILLISECONDS);
+        wait.whenComplete((online, throwable) -> {
+            if (waiting.decrementAndGet() > 0 || !(throwable instanceof CancellationException) || readiness.isDone()) return;
+            Logger.debug("client left before {} was ready", username);
+            shutdown();
+        });
+        HttpServletRequest request = context.req();
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onError(AsyncEvent event) {
+                    wait.cancel(false);
+                }
+
+                @Override
+                public void onComplete(AsyncEvent event) {
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        }
+        return wait;
+    }
+
+    public Rendition getRendition(int index) {
+        List<PlaylistM3U8> variants = this.variants;
+        if (!running || variants == null || index < 0 || index >= variants.size()) return null;
+        Rendition rendition = renditions.computeIfAbsent(index, key -> {
+            Logger.debug("start rendition {} for {}", key, username);
+            return new Rendition(this, variants.get(key));
+        });
+        rendition.touch();
+        return rendition;
+    }
+
+    public void subscribe(SseClient client) {
+        Rendition primary = this.primary;
+        if (primary != null) primary.subscribe(client);
+        else client.close();
+    }
+
+    public CompletableFuture<Boolean> getReadiness() {
+        return readiness;
+    }
+
+    public SegmentProxy getSegmentProxy() {
+        Rendition primary = this.primary;
+        return primary != null ? primary.getSegmentProxy() : null;
+    }
+
+    public void touch() {
+        this.lastAccess = System.currentTimeMillis();
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Rendition getPrimary() {
+        return primary;
+    }
+
+    public PlaylistSnapshot getPlaylist() {
+        Rendition primary = this.primary;
+        return primary != null ? primary.getPlaylist() : null;
+    }
+
+    public PlaylistSnapshot getMaster() {
+        return master;
+    }
+
+    public IonClient getClient() {
+        return twitch.getClient();
     }
 
     public String getUsername() {
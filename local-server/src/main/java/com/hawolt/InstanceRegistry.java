@@ -0,0 +1,67 @@
+package com.hawolt;
+
+import com.hawolt.logger.Logger;
+import com.hawolt.playlist.InstanceCallback;
+import com.hawolt.poll.PollScheduler;
+import com.hawolt.poll.Poller;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds at most one {@link Instance} per channel, creation is single-flight and lookups are lock-free.
+ * Instances that have not been accessed for the idle timeout are shut down by a periodic sweep.
+ */
+public class InstanceRegistry implements InstanceCallback, Poller {
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toMillis(15);
+
+    private final Map<String, Instance> instances = new ConcurrentHashMap<>();
+    private final long timeout;
+
+    public InstanceRegistry(long timeout) {
+        this.timeout = timeout;
+        PollScheduler.getGlobalScheduler().register(this, SWEEP_INTERVAL);
+    }
+
+    public Instance launch(String username) {
+        Instance instance = instances.computeIfAbsent(username, key -> {
+            Logger.debug("launch instance for {}", key);
+            return Instance.create(key, this);
+        });
+        instance.touch();
+        return instance;
+    }
+
+    public Instance get(String username) {
+        Instance instance = instances.get(username);
+        if (instance != null) instance.touch();
+        return instance;
+    }
+
+    @Override
+    public void onStreamUnavailable(String username) {
+        Logger.debug("temporary instance for {} has ended", username);
+        instances.computeIfPresent(username, (key, instance) -> instance.isRunning() ? instance : null);
+    }
+
+    @Override
+    public long poll() {
+        long now = System.currentTimeMillis();
+        for (Instance instance : instances.values()) {
+            if (now - instance.getLastAccess() < timeout) continue;
+            Logger.debug("evict idle instance for {}", instance.getUsername());
+            instance.shutdown();
+        }
+        return SWEEP_INTERVAL;
+    }
+
+    public Collection<Instance> values() {
+        return instances.values();
+    }
+
+    public int size() {
+        return instances.size();
+    }
+}
@@ -1,55 +1,207 @@
 package com.hawolt;
 
 import com.hawolt.logger.Logger;
-import com.hawolt.playlist.InstanceCallback;
+import com.hawolt.metrics.Metrics;
+import com.hawolt.playlist.PlaylistSnapshot;
+import com.hawolt.poll.PollScheduler;
+import com.hawolt.poll.VirtualThreads;
+import com.hawolt.segment.SegmentCache;
+import com.hawolt.segment.SegmentProxy;
+import com.hawolt.stream.twitch.TwitchClientIdProvider;
+import com.hawolt.stream.twitch.TwitchClientPool;
+import com.hawolt.stream.twitch.TwitchPrewarm;
+import com.hawolt.upstream.CircuitBreakers;
 import io.javalin.Javalin;
+import io.javalin.http.Context;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
 
-    public static final Object lock = new Object();
-
-    public static Map<String, Instance> instances = new HashMap<>();
-
-    private static final InstanceCallback callback = username -> {
-        Logger.debug("temporary instance for {} has ended", username);
-        synchronized (lock) {
-            instances.remove(username);
-        }
-    };
-
-    public static void launch(String username, boolean keepCache) {
-        Logger.debug("launch instance for {}", username);
-        Instance instance = Instance.create(username, callback);
-        synchronized (lock) {
-            instances.put(username, instance);
-        }
-    }
+    public static final InstanceRegistry instances = new InstanceRegistry(TimeUnit.MINUTES.toMillis(1));
 
     public static void main(String[] args) {
         Tray.create();
-        Javalin app = Javalin.create().before("*", ctx -> {
+        TwitchClientIdProvider.initialize();
+        Main.create().start(Settings.PORT);
+    }
+
+    public static Javalin create() {
+        Metrics.gauge("noads_instances", instances::size);
+        Metrics.gauge("noads_poll_registrations", PollScheduler.getGlobalScheduler()::getRegistrations);
+        Metrics.gauge("noads_poll_active", PollScheduler.getGlobalScheduler()::getActiveCount);
+        Metrics.gauge("noads_poll_shed", PollScheduler.getGlobalScheduler()::getShedCount);
+        Metrics.gauge("noads_segment_cache_bytes", SegmentCache.getGlobalCache()::size);
+        Metrics.gauge("noads_client_pool_isolated_total", TwitchClientPool::getIsolatedCount);
+        return Javalin.create(config -> {
+            config.useVirtualThreads = VirtualThreads.isEnabled();
+            config.http.disableCompression();
+        }).before("*", ctx -> {
             ctx.header("Access-Control-Allow-Origin", "*");
             ctx.header("Access-Control-Allow-Methods", "*");
             ctx.header("Access-Control-Allow-Headers", "*");
             ctx.header("Access-Control-Allow-Credentials", "true");
-        }).options("*", ctx -> {
+        }).after("*", Metrics::record).options("*", ctx -> {
             ctx.status(200);
-        }).get("/live/{username}/playlist.m3u8", context -> {
+        }).get("/metrics", context -> {
+            context.contentType("text/plain; version=0.0.4").result(Metrics.render());
+        }).get("/upstream", context -> {
+            context.contentType("application/json").result(CircuitBreakers.describe().toString());
+        }).get("/live/{username}/master.m3u8", Metrics.timed(Metrics.ROUTE_PLAYLIST, context -> {
+            String username = context.pathParam("username").toLowerCase();
+            Instance instance = Main.instances.get(username);
+            playlist(context, instance != null ? instance.getMaster() : null);
+        })).get("/live/{username}/playlist.m3u8", Metrics.timed(Metrics.ROUTE_PLAYLIST, context -> {
             String username = context.pathParam("username").toLowerCase();
             Instance instance = Main.instances.get(username);
-            context.result(instance.getPlaylist());
-        }).get("/live/{username}", context -> {
+            playlist(context, instance != null ? instance.getPrimary() : null);
+        })).get("/live/{username}/seg/{sequence}.ts", Metrics.timed(Metrics.ROUTE_SEGMENT, context -> {
             String username = context.pathParam("username").toLowerCase();
-            if (!instances.containsKey(username)) {
-                launch(username, false);
+            Instance instance = Main.instances.get(username);
+            segment(context, instance != null ? instance.getSegmentProxy() : null);
+        })).get("/live/{username}/{rendition}/playlist.m3u8", Metrics.timed(Metrics.ROUTE_PLAYLIST, context -> {
+            playlist(context, rendition(context));
+        })).get("/live/{username}/{rendition}/seg/{sequence}.ts", Metrics.timed(Metrics.ROUTE_SEGMENT, context -> {
+            Rendition rendition = rendition(context);
+            segment(context, rendition != null ? rendition.getSegmentProxy() : null);
+        })).sse("/live/{username}/events", client -> {
+            String username = client.ctx().pathParam("username").toLowerCase();
+            Instance instance = Main.instances.get(username);
+            if (instance == null) {
+                client.close();
+                return;
+            }
+            instance.subscribe(client);
+        }).post("/live/prewarm", context -> {
+            List<String> channels = new ArrayList<>();
+            try {
+                JSONArray usernames = new JSONArray(context.body());
+                for (int i = 0; i < usernames.length(); i++) {
+                    channels.add(usernames.getString(i));
+                }
+            } catch (JSONException e) {
+                context.status(400);
+                return;
+            }
+            try {
+                context.contentType("application/json").result(new JSONObject(TwitchPrewarm.prewarm(channels)).toString());
+            } catch (Exception e) {
+                Logger.error(e);
+                context.status(502);
+            }
+        }).get("/live/{username}", Metrics.timed(Metrics.ROUTE_LIVE, context -> {
+            String username = context.pathParam("username").toLowerCase();
+            Main.instances.launch(username).getHandler().handle(context);
+        }));
+    }
+
+    private static Rendition rendition(Context context) {
+        String username = context.pathParam("username").toLowerCase();
+        Instance instance = Main.instances.get(username);
+        if (instance == null) return null;
+        try {
+            return instance.getRendition(Integer.parseInt(context.pathParam("rendition")));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Answers right away unless the player asked for a blocking reload with {@code _HLS_msn}/{@code _HLS_part}
+     * or the rendition has not produced a playlist yet, in which case the response is held until it has.
+     * Following RFC 8216bis a part without a sequence and a sequence more than two segments ahead are rejected.
+     */
+    private static void playlist(Context context, Rendition rendition) {
+        if (rendition == null) {
+            context.status(404);
+            return;
+        }
+        String msn = context.queryParam("_HLS_msn"), part = context.queryParam("_HLS_part");
+        if (msn == null && part != null) {
+            context.status(400);
+            return;
+        }
+        long requested = -1L, sequence = -1L;
+        try {
+            if (msn != null) {
+                requested = Long.parseLong(msn);
+                sequence = requested + (part != null && Long.parseLong(part) > 0 ? 1 : 0);
             }
-            Main.instances.get(username).getHandler().handle(context);
-        }).start(61616);
+        } catch (NumberFormatException e) {
+            context.status(400);
+            return;
+        }
+        PlaylistSnapshot current = rendition.getPlaylist();
+        if (current != null && current.getSequence() >= 0 && requested > current.getSequence() + 2) {
+            context.status(400);
+            return;
+        }
+        if (current != null && current.getSequence() >= sequence) {
+            playlist(context, current);
+            return;
+        }
+        long target = sequence;
+        context.future(() -> rendition.await(target).thenAccept(snapshot -> playlist(context, snapshot)));
+    }
+
+    private static void playlist(Context context, PlaylistSnapshot playlist) {
+        if (playlist == null) {
+            context.status(404);
+            return;
+        }
+        context.header("ETag", playlist.getETag());
+        context.header("Vary", "Accept-Encoding");
+        if (playlist.matches(context.header("If-None-Match"))) {
+            context.status(304);
+            return;
+        }
+        String encoding = context.header("Accept-Encoding");
+        if (encoding != null && encoding.contains("gzip")) {
+            context.header("Content-Encoding", "gzip");
+            context.result(playlist.getGzip());
+        } else {
+            context.result(playlist.getBody());
+        }
+    }
+
+    private static void segment(Context context, SegmentProxy proxy) {
+        long sequence;
+        try {
+            sequence = Long.parseLong(context.pathParam("sequence"));
+        } catch (NumberFormatException e) {
+            context.status(400);
+            return;
+        }
+        CompletableFuture<byte[]> segment = proxy != null ? proxy.get(sequence) : null;
+        if (segment == null) {
+            context.status(404);
+            return;
+        }
+        context.future(() -> segment.handle((data, throwable) -> {
+            if (throwable != null) return context.status(502);
+            write(context, data);
+            return context;
+        }));
+    }
+
+    /**
+     * Writes the cached array straight to the servlet response, {@link Context#result(byte[])} would wrap it
+     * in a stream that Javalin copies through its own buffer.
+     */
+    private static void write(Context context, byte[] data) {
+        context.res().setContentType("video/mp2t");
+        context.res().setContentLength(data.length);
+        try {
+            context.res().getOutputStream().write(data);
+        } catch (IOException e) {
+            Logger.debug("[segment] client went away: {}", e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
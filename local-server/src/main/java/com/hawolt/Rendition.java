@@ -0,0 +1,212 @@
+package com.hawolt;
+
+import com.hawolt.custom.TwitchM3U8Exception;
+import com.hawolt.ionhttp.request.IonRequest;
+import com.hawolt.ionhttp.request.IonResponse;
+import com.hawolt.logger.Logger;
+import com.hawolt.metrics.Metrics;
+import com.hawolt.playlist.MediaPlaylistWindow;
+import com.hawolt.playlist.PlaylistEvents;
+import com.hawolt.playlist.PlaylistSnapshot;
+import com.hawolt.poll.PollCadence;
+import com.hawolt.poll.PollHandle;
+import com.hawolt.poll.PollScheduler;
+import com.hawolt.poll.Poller;
+import com.hawolt.segment.SegmentProxy;
+import com.hawolt.stream.exceptions.TwitchStreamOffline;
+import com.hawolt.stream.exceptions.TwitchTokenExpiredException;
+import com.hawolt.stream.playlist.PlaylistM3U8;
+import com.hawolt.upstream.CircuitBreakers;
+import com.hawolt.upstream.CircuitOpenException;
+import com.hawolt.upstream.RetryBudget;
+import io.javalin.http.sse.SseClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the media playlist of a single variant. Only the primary rendition of an {@link Instance} is started
+ * eagerly, every other rendition starts polling once a player requests it and is stopped when left idle.
+ */
+public class Rendition implements Poller {
+    private final CompletableFuture<Boolean> readiness = new CompletableFuture<>();
+    private final PollCadence cadence = new PollCadence();
+    private final PlaylistEvents events = new PlaylistEvents();
+    private final MediaPlaylistWindow window;
+    private final PlaylistM3U8 variant;
+    private final SegmentProxy proxy;
+    private final Instance instance;
+    private final PollHandle handle;
+
+    private volatile CompletableFuture<PlaylistSnapshot> update = new CompletableFuture<>();
+    private volatile StandbySource standby;
+    private volatile long lastAccess = System.currentTimeMillis();
+    private volatile boolean running = true;
+    private boolean hedging, failed;
+
+    public Rendition(Instance instance, PlaylistM3U8 variant) {
+        this.instance = instance;
+        this.variant = variant;
+        this.proxy = Settings.SEGMENT_PROXY ? new SegmentProxy(instance.getUsername(), instance.getClient()) : null;
+        this.window = new MediaPlaylistWindow(proxy);
+        this.handle = PollScheduler.getGlobalScheduler().register(this, 0);
+    }
+
+    @Override
+    public long poll() {
+        if (!instance.isRunning()) stop();
+        if (!running) return -1L;
+        // a poll after a failed one is a retry and is drawn from the shared retry budget
+        if (failed && !RetryBudget.getGlobalBudget().tryRetry()) {
+            cadence.onFailure();
+            return cadence.next();
+        }
+        long delay = 0L;
+        try {
+            execute();
+            this.failed = false;
+        } catch (Exception e) {
+            this.failed = true;
+            Metrics.error(e);
+            cadence.onFailure();
+            fail(e);
+            if (e instanceof CircuitOpenException) delay = ((CircuitOpenException) e).getRetryAfter();
+        }
+        return running ? Math.max(delay, cadence.next()) : -1L;
+    }
+
+    /**
+     * Only errors that affect the whole channel are handed to the instance, every other failure stays with
+     * this rendition. Transient errors are retried with backoff, a broken variant other than the primary is stopped.
+     */
+    private void fail(Exception e) {
+        Rendition primary = instance.getPrimary();
+        boolean channel = primary == null || primary == this;
+        if (e instanceof TwitchTokenExpiredException || (channel && e instanceof TwitchStreamOffline)) {
+            instance.handle(e);
+        } else if (e instanceof CircuitOpenException) {
+            Logger.debug("[rendition] {} for {}", e.getMessage(), instance.getUsername());
+        } else if (!channel && (e instanceof TwitchStreamOffline || e instanceof TwitchM3U8Exception)) {
+            Logger.debug("stop rendition {} for {}: {}", variant.getHeight(), instance.getUsername(), e.getMessage());
+            stop();
+        } else {
+            Logger.warn("[rendition] {} for {}: {}", e.getClass().getSimpleName(), instance.getUsername(), e.getMessage());
+        }
+    }
+
+    private void execute() throws Exception {
+        IonRequest request = IonRequest.on(variant.getURL()).get();
+        long start = System.nanoTime();
+        try (IonResponse response = CircuitBreakers.WEAVER.execute(instance.getClient(), request)) {
+            Metrics.MEDIA_POLL.since(start);
+            if (response.code() == 404) throw new TwitchStreamOffline("PLAYLIST_404");
+            if (response.code() == 403) throw new TwitchTokenExpiredException("PLAYLIST_403");
+            PlaylistSnapshot previous = window.getPlaylist();
+            boolean appended = window.update(response.body());
+            if (hedge()) appended |= window.splice(standby.poll());
+            PlaylistSnapshot current = window.getPlaylist();
+            if (current != previous) {
+                CompletableFuture<PlaylistSnapshot> update = this.update;
+                this.update = new CompletableFuture<>();
+                update.complete(current);
+                events.publish(current);
+            }
+            if (events.size() > 0) {
+                instance.touch();
+                touch();
+            }
+            cadence.onUpdate(appended, window.getTargetDuration());
+            this.readiness.complete(true);
+        }
+    }
+
+    /**
+     * The standby source is only polled once the ad break outlasted the standby delay and is then
+     * polled along with every update until upstream content returns.
+     */
+    private boolean hedge() {
+        if (standby == null || !window.isInAdBreak()) return hedging = false;
+        if (!hedging && System.currentTimeMillis() - window.getLastAppend() > Settings.STANDBY_DELAY) {
+            Logger.debug("[standby] hedging ad break for {}", instance.getUsername());
+            this.hedging = true;
+        }
+        return hedging;
+    }
+
+    public void stop() {
+        if (!running) return;
+        this.running = false;
+        this.readiness.complete(false);
+        if (handle != null) this.handle.cancel();
+        if (proxy != null) this.proxy.close();
+        if (standby != null) this.standby.close();
+        this.events.close();
+        this.update.complete(window.getPlaylist());
+    }
+
+    /**
+     * Blocking playlist reload, completes with the first playlist that contains the given media sequence
+     * or with the current playlist after three target durations.
+     */
+    public CompletableFuture<PlaylistSnapshot> await(long sequence) {
+        long timeout = TimeUnit.SECONDS.toMillis(3L * window.getTargetDuration());
+        return await(sequence, System.currentTimeMillis() + timeout);
+    }
+
+    private CompletableFuture<PlaylistSnapshot> await(long sequence, long deadline) {
+        CompletableFuture<PlaylistSnapshot> next = update;
+        PlaylistSnapshot current = window.getPlaylist();
+        long remaining = deadline - System.currentTimeMillis();
+        if (!running || remaining <= 0 || (current != null && current.getSequence() >= sequence)) {
+            return CompletableFuture.completedFuture(current);
+        }
+        return next.copy()
+                .completeOnTimeout(null, remaining, TimeUnit.MILLISECONDS)
+                .thenCompose(snapshot -> snapshot != null ? await(sequence, deadline) : CompletableFuture.completedFuture(window.getPlaylist()));
+    }
+
+    public void setStandby(StandbySource standby) {
+        this.standby = standby;
+    }
+
+    /**
+     * Subscribers of a stopped rendition are closed right away, checked again after subscribing since
+     * {@link #stop()} may have closed the events in between.
+     */
+    public void subscribe(SseClient client) {
+        if (!running) {
+            client.close();
+            return;
+        }
+        events.subscribe(client, window.getPlaylist());
+        if (!running) client.close();
+    }
+
+    public void touch() {
+        this.lastAccess = System.currentTimeMillis();
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public CompletableFuture<Boolean> getReadiness() {
+        return readiness;
+    }
+
+    public SegmentProxy getSegmentProxy() {
+        return proxy;
+    }
+
+    public PlaylistSnapshot getPlaylist() {
+        return window.getPlaylist();
+    }
+
+    public PlaylistM3U8 getVariant() {
+        return variant;
+    }
+}
@@ -0,0 +1,39 @@
+package com.hawolt;
+
+import java.nio.file.Paths;
+
+public class Settings {
+    public static final int PORT = Integer.getInteger("noads.port", 61616);
+    public static final String TWITCH_WWW = System.getProperty("noads.twitch.www", "https://www.twitch.tv");
+    public static final String TWITCH_GQL = System.getProperty("noads.twitch.gql", "https://gql.twitch.tv");
+    public static final String TWITCH_USHER = System.getProperty("noads.twitch.usher", "https://usher.ttvnw.net");
+    public static final String STATE_FILE = System.getProperty("noads.state.file", Paths.get(System.getProperty("user.home"), ".no-ads", "state.json").toString());
+    public static final boolean SEGMENT_PROXY = Boolean.getBoolean("noads.segment.proxy");
+    public static final long SEGMENT_CACHE_BYTES = Long.getLong("noads.segment.cache.bytes", 128L * 1024 * 1024);
+    public static final int SEGMENT_RING_SIZE = Integer.getInteger("noads.segment.ring.size", 16);
+    public static final int SEGMENT_THREADS = Integer.getInteger("noads.segment.threads", 16);
+    public static final int SEGMENT_QUEUE = Integer.getInteger("noads.segment.queue", 256);
+    public static final long RENDITION_IDLE = Long.getLong("noads.rendition.idle", 30_000L);
+    public static final int PREWARM_BATCH_SIZE = Integer.getInteger("noads.prewarm.batch.size", 20);
+    public static final int PREWARM_LIMIT = Integer.getInteger("noads.prewarm.limit", 100);
+    public static final int PREWARM_THREADS = Integer.getInteger("noads.prewarm.threads", 8);
+    public static final int EVENT_THREADS = Integer.getInteger("noads.event.threads", 16);
+    public static final int EVENT_QUEUE = Integer.getInteger("noads.event.queue", 1024);
+    public static final boolean VIRTUAL_THREADS = Boolean.parseBoolean(System.getProperty("noads.virtual.threads", "true"));
+    public static final int POLL_THREADS = Integer.getInteger("noads.poll.threads", 64);
+    public static final int POLL_QUEUE = Integer.getInteger("noads.poll.queue", 4096);
+    public static final int UPSTREAM_THREADS = Integer.getInteger("noads.upstream.threads", 64);
+    public static final int UPSTREAM_QUEUE = Integer.getInteger("noads.upstream.queue", 1024);
+    public static final long STAGE_TIMEOUT = Long.getLong("noads.stage.timeout", 5_000L);
+    public static final boolean LOW_LATENCY = Boolean.parseBoolean(System.getProperty("noads.low.latency", "true"));
+    public static final String AD_FILTERS = System.getProperty("noads.ad.filters", "program-date-time,stitched-ad,amazon");
+    public static final String STANDBY = System.getProperty("noads.standby", "embed:web");
+    public static final long STANDBY_DELAY = Long.getLong("noads.standby.delay", 3_000L);
+    public static final int BREAKER_FAILURES = Integer.getInteger("noads.breaker.failures", 5);
+    public static final long BREAKER_OPEN = Long.getLong("noads.breaker.open", 2_000L);
+    public static final long BREAKER_OPEN_MAXIMUM = Long.getLong("noads.breaker.open.maximum", 60_000L);
+    public static final double RETRY_RATIO = Double.parseDouble(System.getProperty("noads.retry.ratio", "0.2"));
+    public static final double RETRY_MINIMUM = Double.parseDouble(System.getProperty("noads.retry.minimum", "2"));
+    public static final int TOKEN_CACHE_SIZE = Integer.getInteger("noads.token.cache.size", 64);
+    public static final long TOKEN_SAFETY_MARGIN = Long.getLong("noads.token.safety.margin", 60L);
+}
@@ -0,0 +1,112 @@
+package com.hawolt;
+
+import com.hawolt.ionhttp.request.IonRequest;
+import com.hawolt.ionhttp.request.IonResponse;
+import com.hawolt.logger.Logger;
+import com.hawolt.metrics.Metrics;
+import com.hawolt.playlist.MediaPlaylistWindow;
+import com.hawolt.playlist.MediaSegment;
+import com.hawolt.stream.playlist.PlaylistM3U8;
+import com.hawolt.stream.twitch.TwitchEXTM3U;
+import com.hawolt.stream.twitch.TwitchStream;
+import com.hawolt.upstream.CircuitBreakers;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Alternate playback source of a channel, requested with a token for another player type. It stays idle
+ * until the primary rendition has been in an ad break for longer than the standby delay, so regular playback
+ * never causes additional upstream requests. The token and master playlist are loaded in the background,
+ * polls return nothing until they are ready so the primary poll is never held up by them.
+ */
+public class StandbySource {
+    private final MediaPlaylistWindow window = new MediaPlaylistWindow();
+    private final String playerType, platform;
+    private final PlaylistM3U8 reference;
+    private final TwitchStream twitch;
+    private final Instance instance;
+
+    private volatile CompletableFuture<TwitchEXTM3U> master;
+    private PlaylistM3U8 variant;
+    private long retry;
+
+    public static StandbySource create(Instance instance, TwitchStream twitch, PlaylistM3U8 reference) {
+        String[] source = Settings.STANDBY.split(":", 2);
+        if (source[0].isBlank()) return null;
+        return new StandbySource(instance, twitch, reference, source[0], source.length == 2 ? source[1] : "web");
+    }
+
+    private StandbySource(Instance instance, TwitchStream twitch, PlaylistM3U8 reference, String playerType, String platform) {
+        this.reference = reference;
+        this.playerType = playerType;
+        this.instance = instance;
+        this.platform = platform;
+        this.twitch = twitch;
+    }
+
+    /**
+     * @return the content segments appended to the standby window by this poll
+     */
+    public List<MediaSegment> poll() {
+        if (System.currentTimeMillis() < retry) return Collections.emptyList();
+        try {
+            if (variant == null) variant = variant();
+            if (variant == null) return Collections.emptyList();
+            IonRequest request = IonRequest.on(variant.getURL()).get();
+            long start = System.nanoTime();
+            try (IonResponse response = CircuitBreakers.WEAVER.execute(instance.getClient(), request)) {
+                Metrics.STANDBY_POLL.since(start);
+                if (response.code() != 200) {
+                    this.variant = null;
+                    return Collections.emptyList();
+                }
+                window.update(response.body());
+                List<MediaSegment> appended = window.getAppended();
+                if (!appended.isEmpty()) Metrics.STANDBY_SEGMENTS.add(appended.size());
+                return appended;
+            }
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            Logger.debug("[standby] {} unavailable for {}: {}", playerType, instance.getUsername(), cause.getMessage());
+            this.retry = System.currentTimeMillis() + Settings.STANDBY_DELAY;
+            this.variant = null;
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * @return the selected variant once the master playlist has been loaded, null while it is still pending
+     */
+    private PlaylistM3U8 variant() {
+        CompletableFuture<TwitchEXTM3U> master = this.master;
+        if (master == null) this.master = master = twitch.loadStandby(playerType, platform);
+        if (!master.isDone()) return null;
+        this.master = null;
+        return select(master.join().getVariants());
+    }
+
+    public void close() {
+        CompletableFuture<TwitchEXTM3U> master = this.master;
+        if (master != null) master.cancel(true);
+    }
+
+    /**
+     * Picks the variant closest to the bandwidth of the primary rendition, splicing requires the same codecs
+     * so variants with a picture are preferred over audio only ones.
+     */
+    private PlaylistM3U8 select(List<PlaylistM3U8> variants) {
+        PlaylistM3U8 selected = null;
+        for (PlaylistM3U8 candidate : variants) {
+            if (candidate.getHeight() <= 0 && reference.getHeight() > 0) continue;
+            if (selected == null || distance(candidate) < distance(selected)) selected = candidate;
+        }
+        return selected;
+    }
+
+    private long distance(PlaylistM3U8 candidate) {
+        return Math.abs(candidate.getBandwidth() - reference.getBandwidth());
+    }
+}
@@ -0,0 +1,19 @@
+package com.hawolt.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter {
+    private final LongAdder adder = new LongAdder();
+
+    public void increment() {
+        adder.increment();
+    }
+
+    public void add(long amount) {
+        adder.add(amount);
+    }
+
+    public long get() {
+        return adder.sum();
+    }
+}
@@ -0,0 +1,82 @@
+package com.hawolt.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear latency histogram in microseconds, every power of two is split into eight linear sub-buckets
+ * which bounds the relative error to 12.5%. Recording is a single array increment and never allocates.
+ * Buckets include their upper bound, so cumulative counts are exact at every {@link #boundary(long)}.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 40 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+
+    public void record(long nanos) {
+        long micros = Math.max(0L, nanos / 1000L);
+        counts.incrementAndGet(index(Math.max(0L, micros - 1)));
+        sum.add(micros);
+    }
+
+    public long since(long start) {
+        long elapsed = System.nanoTime() - start;
+        record(elapsed);
+        return elapsed;
+    }
+
+    /**
+     * @return amount of recorded values less than or equal to the given bucket boundary in microseconds
+     */
+    public long countBelow(long micros) {
+        long count = 0L;
+        for (int i = 0; i < BUCKETS && upperBound(i) <= micros; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long count() {
+        long count = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public long quantile(double quantile) {
+        long total = count(), target = (long) Math.ceil(quantile * total), seen = 0L;
+        for (int i = 0; i < BUCKETS && total > 0; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return upperBound(i);
+        }
+        return 0L;
+    }
+
+    /**
+     * @return the smallest bucket upper bound that is not below the given value in microseconds
+     */
+    public static long boundary(long micros) {
+        return upperBound(index(Math.max(0L, micros - 1)));
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return Math.min(BUCKETS - 1, (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub);
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index + 1;
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS + 1) << (exponent - SUB_BUCKET_BITS);
+    }
+}
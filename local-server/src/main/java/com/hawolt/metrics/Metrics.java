@@ -0,0 +1,140 @@
+package com.hawolt.metrics;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide metrics, the hot path only touches the static counters and histograms, names and labels are
+ * only materialized when {@link #render()} produces the Prometheus text exposition format.
+ */
+public class Metrics {
+    // exported le boundaries are rounded up to the internal bucket bounds so cumulative counts stay exact
+    private static final long[] BOUNDARIES = Arrays.stream(new long[]{
+            1_000L, 2_500L, 5_000L, 10_000L, 25_000L, 50_000L, 100_000L,
+            250_000L, 500_000L, 1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L
+    }).map(Histogram::boundary).toArray();
+    private static final String TIMER = "noads.timer";
+
+    private static final Map<String, Map<String, Histogram>> histograms = new TreeMap<>();
+    private static final Map<String, Map<String, Counter>> counters = new TreeMap<>();
+    private static final Map<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public static final Histogram CHANNEL_PAGE = histogram("noads_upstream_latency_seconds", "stage=\"channel_page\"");
+    public static final Histogram CONFIGURATION = histogram("noads_upstream_latency_seconds", "stage=\"configuration\"");
+    public static final Histogram GQL_TOKEN = histogram("noads_upstream_latency_seconds", "stage=\"gql_token\"");
+    public static final Histogram USHER_MASTER = histogram("noads_upstream_latency_seconds", "stage=\"usher_master\"");
+    public static final Histogram MEDIA_POLL = histogram("noads_upstream_latency_seconds", "stage=\"media_poll\"");
+    public static final Histogram STANDBY_TOKEN = histogram("noads_upstream_latency_seconds", "stage=\"standby_token\"");
+    public static final Histogram STANDBY_MASTER = histogram("noads_upstream_latency_seconds", "stage=\"standby_master\"");
+    public static final Histogram STANDBY_POLL = histogram("noads_upstream_latency_seconds", "stage=\"standby_poll\"");
+
+    public static final Histogram POLL_LAG = histogram("noads_poll_dispatch_lag_seconds", "");
+
+    public static final Histogram ROUTE_LIVE = histogram("noads_route_latency_seconds", "route=\"live\"");
+    public static final Histogram ROUTE_PLAYLIST = histogram("noads_route_latency_seconds", "route=\"playlist\"");
+    public static final Histogram ROUTE_SEGMENT = histogram("noads_route_latency_seconds", "route=\"segment\"");
+
+    public static final Counter TOKEN_CACHE_HIT = counter("noads_cache_requests_total", "cache=\"token\",result=\"hit\"");
+    public static final Counter TOKEN_CACHE_MISS = counter("noads_cache_requests_total", "cache=\"token\",result=\"miss\"");
+    public static final Counter SEGMENT_CACHE_HIT = counter("noads_cache_requests_total", "cache=\"segment\",result=\"hit\"");
+    public static final Counter SEGMENT_CACHE_MISS = counter("noads_cache_requests_total", "cache=\"segment\",result=\"miss\"");
+    public static final Counter STANDBY_SEGMENTS = counter("noads_standby_segments_total", "");
+
+    private static Histogram histogram(String name, String labels) {
+        Histogram histogram = new Histogram();
+        histograms.computeIfAbsent(name, key -> new TreeMap<>()).put(labels, histogram);
+        return histogram;
+    }
+
+    public static synchronized Counter counter(String name, String labels) {
+        Counter counter = new Counter();
+        counters.computeIfAbsent(name, key -> new TreeMap<>()).put(labels, counter);
+        return counter;
+    }
+
+    public static void error(Throwable throwable) {
+        errors.computeIfAbsent(throwable.getClass(), key -> new Counter()).increment();
+    }
+
+    public static void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Marks the start of a timed route, the latency is recorded by {@link #record(Context)} which has to be
+     * registered as an after handler so routes answering with a future are measured once it completed.
+     * <p>
+     * This is the one allocation on the metrics hot path and it is kept on purpose: the start has to travel with
+     * the request across threads, Jetty only exposes a millisecond timestamp which is coarser than the smallest
+     * bucket, and a boxed {@code Long} attribute would cost the same 24 bytes as the {@link Timer} while also
+     * needing a second attribute for the histogram. Storing the attribute allocates a map entry in Jetty anyway.
+     */
+    public static Handler timed(Histogram histogram, Handler handler) {
+        return context -> {
+            context.attribute(TIMER, new Timer(histogram, System.nanoTime()));
+            handler.handle(context);
+        };
+    }
+
+    public static void record(Context context) {
+        Timer timer = context.attribute(TIMER);
+        if (timer != null) timer.histogram.since(timer.start);
+    }
+
+    private static class Timer {
+        private final Histogram histogram;
+        private final long start;
+
+        private Timer(Histogram histogram, long start) {
+            this.histogram = histogram;
+            this.start = start;
+        }
+    }
+
+    public static synchronized String render() {
+        StringBuilder builder = new StringBuilder();
+        histograms.forEach((name, family) -> {
+            builder.append("# TYPE ").append(name).append(" histogram\n");
+            family.forEach((labels, histogram) -> {
+                String prefix = labels.isEmpty() ? "" : labels + ",";
+                for (long boundary : BOUNDARIES) {
+                    builder.append(name).append("_bucket{").append(prefix).append("le=\"")
+                            .append(seconds(boundary)).append("\"} ").append(histogram.countBelow(boundary)).append('\n');
+                }
+                long count = histogram.count();
+                builder.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(count).append('\n');
+                builder.append(name).append("_sum{").append(labels).append("} ").append(seconds(histogram.sum())).append('\n');
+                builder.append(name).append("_count{").append(labels).append("} ").append(count).append('\n');
+            });
+        });
+        counters.forEach((name, family) -> {
+            builder.append("# TYPE ").append(name).append(" counter\n");
+            family.forEach((labels, counter) -> sample(builder, name, labels, counter.get()));
+        });
+        builder.append("# TYPE noads_errors_total counter\n");
+        errors.forEach((type, counter) -> sample(builder, "noads_errors_total", "type=\"" + type.getSimpleName() + "\"", counter.get()));
+        new TreeMap<>(gauges).forEach((name, supplier) -> {
+            builder.append("# TYPE ").append(name).append(" gauge\n");
+            sample(builder, name, "", supplier.getAsLong());
+        });
+        return builder.toString();
+    }
+
+    private static void sample(StringBuilder builder, String name, String labels, long value) {
+        builder.append(name);
+        if (!labels.isEmpty()) builder.append('{').append(labels).append('}');
+        builder.append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1_000_000D);
+    }
+}
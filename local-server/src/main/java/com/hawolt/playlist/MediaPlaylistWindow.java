@@ -0,0 +1,320 @@
+package com.hawolt.playlist;
+
+import com.hawolt.Settings;
+import com.hawolt.custom.TwitchM3U8Exception;
+import com.hawolt.playlist.filter.LineView;
+import com.hawolt.playlist.filter.SegmentFilterChain;
+import com.hawolt.playlist.filter.SegmentFilters;
+import com.hawolt.segment.SegmentProxy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sliding window over the upstream media playlist keyed by media sequence. Every update only
+ * materializes segments that have not been seen before, a segment is kept when every filter of the
+ * {@link SegmentFilterChain} accepts it. Kept segments are renumbered with a
+ * local media sequence, gaps left by dropped segments are marked as discontinuities.
+ * When a {@link SegmentProxy} is present segment URIs are rewritten to point at the local server.
+ * Segments of a standby source can be spliced in while the upstream playlist only carries ads,
+ * upstream segments already covered by spliced content are skipped by their program date time.
+ */
+public class MediaPlaylistWindow {
+    private static final byte[] EXTM3U = ascii("#EXTM3U");
+    private static final byte[] VERSION = ascii("#EXT-X-VERSION:");
+    private static final byte[] TARGET_DURATION = ascii("#EXT-X-TARGETDURATION:");
+    private static final byte[] MEDIA_SEQUENCE = ascii("#EXT-X-MEDIA-SEQUENCE:");
+    private static final byte[] DISCONTINUITY_SEQUENCE = ascii("#EXT-X-DISCONTINUITY-SEQUENCE:");
+    private static final byte[] DISCONTINUITY = ascii("#EXT-X-DISCONTINUITY");
+    private static final byte[] EXTINF = ascii("#EXTINF:");
+    private static final byte[] PROGRAM_DATE_TIME = ascii("#EXT-X-PROGRAM-DATE-TIME:");
+    private static final byte[] PREFETCH = ascii("#EXT-X-TWITCH-PREFETCH:");
+    private static final byte[] SERVER_CONTROL = ascii("#EXT-X-SERVER-CONTROL:CAN-BLOCK-RELOAD=YES");
+    private static final byte[] PART_HOLD_BACK = ascii(",PART-HOLD-BACK=");
+    private static final byte[] PART_INF = ascii("#EXT-X-PART-INF:PART-TARGET=");
+    private static final byte[] PART = ascii("#EXT-X-PART:DURATION=");
+    private static final byte[] PART_URI = ascii(",URI=\"");
+    private static final byte[] PART_INDEPENDENT = ascii("\",INDEPENDENT=YES");
+    private static final byte[] PRELOAD_HINT = ascii("#EXT-X-PRELOAD-HINT:TYPE=PART,URI=\"");
+    private static final byte[] SEGMENT_PREFIX = ascii("seg/");
+    private static final byte[] SEGMENT_SUFFIX = ascii(".ts");
+    private static final int PARTS = 3;
+
+    private final ArrayDeque<MediaSegment> segments = new ArrayDeque<>();
+    private final List<MediaSegment> appended = new ArrayList<>();
+    private final LineView view = new LineView();
+    private final SegmentFilterChain filters;
+    private final PlaylistBuffer buffer = new PlaylistBuffer(8192);
+    private final SegmentProxy proxy;
+
+    private final long epoch = System.currentTimeMillis();
+    private long upstream = -1L, local, discontinuity, revision, time;
+    private int version = 3, targetDuration = 2, limit = 1;
+    private volatile long lastAppend = System.currentTimeMillis();
+    private volatile boolean adBreak;
+    private volatile PlaylistSnapshot playlist;
+    private byte[] hint;
+    private boolean gap, spliced;
+
+    public MediaPlaylistWindow() {
+        this(null);
+    }
+
+    public MediaPlaylistWindow(SegmentProxy proxy) {
+        this(proxy, SegmentFilters.create());
+    }
+
+    public MediaPlaylistWindow(SegmentProxy proxy, SegmentFilterChain filters) {
+        this.filters = filters;
+        this.proxy = proxy;
+    }
+
+    /**
+     * @return whether the update appended at least one new segment to the window
+     */
+    public boolean update(byte[] body) throws TwitchM3U8Exception {
+        int position = 0, line = 0, count = 0, infoStart = -1, infoLength = 0, dateStart = -1, dateEnd = 0;
+        boolean valid = false, marker = false;
+        long sequence = 0, latest = -1L;
+        byte[] hint = null;
+        filters.reset();
+        appended.clear();
+        while (position < body.length) {
+            int start = position;
+            int end = indexOf(body, start);
+            position = end + 1;
+            if (end > start && body[end - 1] == '\r') end--;
+            int length = end - start;
+            if (line++ == 0) {
+                if (!(valid = matches(body, start, length, EXTM3U, true))) break;
+                continue;
+            }
+            if (length == 0) continue;
+            view.set(body, start, length);
+            if (body[start] != '#') {
+                count++;
+                boolean fresh = sequence > upstream;
+                boolean accepted = filters.accept(view, fresh);
+                if (fresh) {
+                    long time = dateStart == -1 ? 0L : parseTime(body, dateStart, dateEnd);
+                    boolean covered = spliced && time != 0L && time <= this.time;
+                    if (accepted && infoStart != -1 && !covered) {
+                        byte[] info = Arrays.copyOfRange(body, infoStart, infoStart + infoLength);
+                        MediaSegment segment = new MediaSegment(local, gap || marker || spliced, info, uri(body, start, length), time);
+                        segments.addLast(segment);
+                        appended.add(segment);
+                        latest = local++;
+                        if (time != 0L) this.time = time;
+                        gap = spliced = false;
+                    } else if (!covered) {
+                        gap = true;
+                    }
+                    this.adBreak = !accepted;
+                    this.upstream = sequence;
+                }
+                marker = false;
+                infoStart = dateStart = -1;
+                sequence++;
+                continue;
+            }
+            filters.onTag(view);
+            if (matches(body, start, length, EXTINF, false)) {
+                infoStart = start;
+                infoLength = length;
+            } else if (matches(body, start, length, PROGRAM_DATE_TIME, false)) {
+                dateStart = start + PROGRAM_DATE_TIME.length;
+                dateEnd = end;
+            } else if (matches(body, start, length, DISCONTINUITY, true)) {
+                marker = true;
+            } else if (matches(body, start, length, MEDIA_SEQUENCE, false)) {
+                sequence = parseLong(body, start + MEDIA_SEQUENCE.length, end);
+                if (upstream != -1L && sequence > upstream + 1) gap = true;
+            } else if (matches(body, start, length, TARGET_DURATION, false)) {
+                this.targetDuration = (int) parseLong(body, start + TARGET_DURATION.length, end);
+            } else if (matches(body, start, length, VERSION, false)) {
+                this.version = (int) parseLong(body, start + VERSION.length, end);
+            } else if (Settings.LOW_LATENCY && hint == null && !gap && matches(body, start, length, PREFETCH, false)) {
+                hint = uri(body, start + PREFETCH.length, length - PREFETCH.length);
+            }
+        }
+        if (!valid) {
+            throw new TwitchM3U8Exception(String.join(":", "BAD_M3U8", new String(body, StandardCharsets.UTF_8)));
+        }
+        this.limit = Math.max(1, count);
+        if (!appended.isEmpty()) this.lastAppend = System.currentTimeMillis();
+        boolean trimmed = trim();
+        boolean hinted = !Arrays.equals(hint, this.hint);
+        this.hint = hint;
+        if (!appended.isEmpty() || trimmed || hinted || playlist == null) render();
+        if (proxy != null && latest != -1L) proxy.prefetch(latest);
+        return !appended.isEmpty();
+    }
+
+    /**
+     * Appends segments taken from the window of a standby source, only segments newer than the newest
+     * segment in this window by program date time are used. The first spliced segment and the first
+     * upstream segment afterwards are marked as discontinuities.
+     *
+     * @return whether at least one segment was spliced into the window
+     */
+    public boolean splice(List<MediaSegment> standby) {
+        long latest = -1L;
+        for (MediaSegment segment : standby) {
+            if (segment.getTime() == 0L || segment.getTime() <= time) continue;
+            byte[] uri = uri(segment.getURI(), 0, segment.getURI().length);
+            segments.addLast(new MediaSegment(local, !spliced, segment.getInfo(), uri, segment.getTime()));
+            this.time = segment.getTime();
+            this.spliced = true;
+            latest = local++;
+        }
+        if (latest == -1L) return false;
+        this.lastAppend = System.currentTimeMillis();
+        trim();
+        render();
+        if (proxy != null) proxy.prefetch(latest);
+        return true;
+    }
+
+    private boolean trim() {
+        boolean trimmed = false;
+        while (segments.size() > limit) {
+            if (segments.removeFirst().isDiscontinuity()) discontinuity++;
+            trimmed = true;
+        }
+        return trimmed;
+    }
+
+    private byte[] uri(byte[] body, int start, int length) {
+        if (proxy == null) return Arrays.copyOfRange(body, start, start + length);
+        proxy.announce(local, new String(body, start, length, StandardCharsets.UTF_8));
+        buffer.reset();
+        buffer.append(SEGMENT_PREFIX, 0, SEGMENT_PREFIX.length);
+        buffer.appendDecimal(local);
+        buffer.append(SEGMENT_SUFFIX, 0, SEGMENT_SUFFIX.length);
+        return buffer.toByteArray();
+    }
+
+    private void render() {
+        buffer.reset();
+        buffer.appendLine(EXTM3U, 0, EXTM3U.length);
+        appendTag(VERSION, version);
+        appendTag(TARGET_DURATION, targetDuration);
+        if (Settings.LOW_LATENCY) {
+            buffer.append(SERVER_CONTROL, 0, SERVER_CONTROL.length);
+            if (hint != null) {
+                buffer.append(PART_HOLD_BACK, 0, PART_HOLD_BACK.length);
+                buffer.appendDecimal(3L * targetDuration);
+                buffer.append((byte) '\n');
+                appendTag(PART_INF, targetDuration);
+            } else {
+                buffer.append((byte) '\n');
+            }
+        }
+        appendTag(MEDIA_SEQUENCE, segments.isEmpty() ? local : segments.getFirst().getSequence());
+        appendTag(DISCONTINUITY_SEQUENCE, discontinuity);
+        long last = segments.isEmpty() ? -1L : segments.getLast().getSequence();
+        for (MediaSegment segment : segments) {
+            if (segment.isDiscontinuity()) buffer.appendLine(DISCONTINUITY, 0, DISCONTINUITY.length);
+            if (hint != null && last - segment.getSequence() < PARTS) appendPart(segment);
+            buffer.appendLine(segment.getInfo(), 0, segment.getInfo().length);
+            buffer.appendLine(segment.getURI(), 0, segment.getURI().length);
+        }
+        if (hint != null) {
+            buffer.append(PRELOAD_HINT, 0, PRELOAD_HINT.length);
+            buffer.append(hint, 0, hint.length);
+            buffer.append((byte) '"');
+            buffer.append((byte) '\n');
+        }
+        this.playlist = new PlaylistSnapshot(epoch, ++revision, buffer.toByteArray(), last);
+    }
+
+    /**
+     * Every segment close to the live edge is also listed as a single independent part, this lets LL-HLS
+     * clients follow the preload hint and use blocking playlist reloads with whole segments.
+     */
+    private void appendPart(MediaSegment segment) {
+        byte[] info = segment.getInfo();
+        int end = EXTINF.length;
+        while (end < info.length && info[end] != ',') end++;
+        buffer.append(PART, 0, PART.length);
+        buffer.append(info, EXTINF.length, end - EXTINF.length);
+        buffer.append(PART_URI, 0, PART_URI.length);
+        buffer.append(segment.getURI(), 0, segment.getURI().length);
+        buffer.append(PART_INDEPENDENT, 0, PART_INDEPENDENT.length);
+        buffer.append((byte) '\n');
+    }
+
+    private void appendTag(byte[] tag, long value) {
+        buffer.append(tag, 0, tag.length);
+        buffer.appendDecimal(value);
+        buffer.append((byte) '\n');
+    }
+
+    public PlaylistSnapshot getPlaylist() {
+        return playlist;
+    }
+
+    public int getTargetDuration() {
+        return targetDuration;
+    }
+
+    /**
+     * @return the segments appended by the last update
+     */
+    public List<MediaSegment> getAppended() {
+        return appended;
+    }
+
+    /**
+     * @return whether the newest upstream segment was dropped by the filter chain
+     */
+    public boolean isInAdBreak() {
+        return adBreak;
+    }
+
+    public long getLastAppend() {
+        return lastAppend;
+    }
+
+    private static long parseTime(byte[] body, int offset, int end) {
+        try {
+            String value = new String(body, offset, end - offset, StandardCharsets.US_ASCII);
+            return DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(value, Instant::from).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0L;
+        }
+    }
+
+    private static long parseLong(byte[] body, int offset, int end) {
+        long value = 0;
+        for (int i = offset; i < end && body[i] >= '0' && body[i] <= '9'; i++) {
+            value = value * 10 + (body[i] - '0');
+        }
+        return value;
+    }
+
+    private static int indexOf(byte[] body, int offset) {
+        for (int i = offset; i < body.length; i++) {
+            if (body[i] == '\n') return i;
+        }
+        return body.length;
+    }
+
+    private static boolean matches(byte[] body, int offset, int length, byte[] prefix, boolean exact) {
+        if (length < prefix.length || (exact && length != prefix.length)) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (body[offset + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
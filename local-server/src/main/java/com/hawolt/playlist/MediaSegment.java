@@ -0,0 +1,38 @@
+package com.hawolt.playlist;
+
+public class MediaSegment {
+    private final boolean discontinuity;
+    private final long sequence, time;
+    private final byte[] info, uri;
+
+    MediaSegment(long sequence, boolean discontinuity, byte[] info, byte[] uri, long time) {
+        this.time = time;
+        this.discontinuity = discontinuity;
+        this.sequence = sequence;
+        this.info = info;
+        this.uri = uri;
+    }
+
+    public boolean isDiscontinuity() {
+        return discontinuity;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the program date time in epoch milliseconds or zero when the upstream playlist has none
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public byte[] getInfo() {
+        return info;
+    }
+
+    public byte[] getURI() {
+        return uri;
+    }
+}
@@ -0,0 +1,60 @@
+package com.hawolt.playlist;
+
+import java.util.Arrays;
+
+public class PlaylistBuffer {
+    private byte[] buffer;
+    private int size;
+
+    public PlaylistBuffer(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    public void reset() {
+        this.size = 0;
+    }
+
+    public void append(byte[] source, int offset, int length) {
+        ensure(length);
+        System.arraycopy(source, offset, buffer, size, length);
+        this.size += length;
+    }
+
+    public void append(byte b) {
+        ensure(1);
+        this.buffer[size++] = b;
+    }
+
+    public void appendLine(byte[] source, int offset, int length) {
+        append(source, offset, length);
+        append((byte) '\n');
+    }
+
+    public void appendDecimal(long value) {
+        if (value < 0) {
+            append((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) digits++;
+        ensure(digits);
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        this.size += digits;
+    }
+
+    private void ensure(int length) {
+        if (size + length <= buffer.length) return;
+        this.buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + length));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+}
@@ -0,0 +1,99 @@
+package com.hawolt.playlist;
+
+import com.hawolt.Settings;
+import com.hawolt.logger.Logger;
+import com.hawolt.poll.VirtualThreads;
+import io.javalin.http.sse.SseClient;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes every new playlist version to connected Server-Sent Events clients. Each subscriber only holds
+ * on to the latest version it has not received yet, a slow consumer skips intermediate versions
+ * instead of queueing them or holding up the poller and other subscribers. When the delivery executor is
+ * saturated the version stays pending and goes out with the next publish.
+ */
+public class PlaylistEvents {
+    private static final ExecutorService DELIVERY = VirtualThreads.newExecutor("playlist-events", Settings.EVENT_THREADS, Settings.EVENT_QUEUE);
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    public void subscribe(SseClient client, PlaylistSnapshot current) {
+        Subscriber subscriber = new Subscriber(client);
+        subscribers.add(subscriber);
+        client.onClose(() -> subscribers.remove(subscriber));
+        client.keepAlive();
+        if (current != null) subscriber.offer(current);
+    }
+
+    public void publish(PlaylistSnapshot snapshot) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(snapshot);
+        }
+    }
+
+    public void close() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.client.close();
+        }
+        subscribers.clear();
+    }
+
+    public int size() {
+        return subscribers.size();
+    }
+
+    private static class Subscriber {
+        private final AtomicReference<PlaylistSnapshot> pending = new AtomicReference<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final SseClient client;
+        private long delivered;
+
+        private Subscriber(SseClient client) {
+            this.client = client;
+        }
+
+        private void offer(PlaylistSnapshot snapshot) {
+            pending.accumulateAndGet(snapshot, (previous, next) ->
+                    previous != null && previous.getVersion() > next.getVersion() ? previous : next
+            );
+            if (!draining.compareAndSet(false, true)) return;
+            try {
+                DELIVERY.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            do {
+                PlaylistSnapshot snapshot;
+                while ((snapshot = pending.getAndSet(null)) != null) {
+                    if (snapshot.getVersion() <= delivered || client.terminated()) continue;
+                    send(snapshot);
+                }
+                draining.set(false);
+            } while (pending.get() != null && draining.compareAndSet(false, true));
+        }
+
+        private void send(PlaylistSnapshot snapshot) {
+            JSONObject object = new JSONObject();
+            object.put("version", snapshot.getVersion());
+            object.put("playlist", new String(snapshot.getBody(), StandardCharsets.UTF_8));
+            try {
+                client.sendEvent("playlist", object.toString(), String.valueOf(snapshot.getVersion()));
+                this.delivered = snapshot.getVersion();
+            } catch (Exception e) {
+                Logger.debug("dropping playlist subscriber: {}", e.getMessage());
+                client.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.hawolt.playlist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable version of a rendered playlist, the ETag is derived from the version so conditional requests
+ * can be answered without touching the body. The gzip variant is computed once per version.
+ */
+public class PlaylistSnapshot {
+    private final long version, sequence;
+    private final byte[] body;
+    private final String etag;
+    private volatile byte[] gzip;
+
+    public PlaylistSnapshot(long epoch, long version, byte[] body) {
+        this(epoch, version, body, -1L);
+    }
+
+    public PlaylistSnapshot(long epoch, long version, byte[] body, long sequence) {
+        this.etag = String.format("\"%s-%s\"", Long.toHexString(epoch), version);
+        this.sequence = sequence;
+        this.version = version;
+        this.body = body;
+    }
+
+    public boolean matches(String header) {
+        return header != null && (header.contains(etag) || header.equals("*"));
+    }
+
+    public byte[] getGzip() {
+        byte[] compressed = gzip;
+        if (compressed != null) return compressed;
+        ByteArrayOutputStream output = new ByteArrayOutputStream(body.length);
+        try (GZIPOutputStream stream = new GZIPOutputStream(output)) {
+            stream.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return (this.gzip = output.toByteArray());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return media sequence of the newest segment in this playlist, -1 when there is none
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getETag() {
+        return etag;
+    }
+}
@@ -0,0 +1,71 @@
+package com.hawolt.playlist.filter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable view of a single line inside a playlist response, filters inspect the bytes in place
+ * instead of materializing a String per line.
+ */
+public class LineView {
+    private byte[] body;
+    private int offset, length;
+
+    public void set(byte[] body, int offset, int length) {
+        this.body = body;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte byteAt(int index) {
+        return body[offset + index];
+    }
+
+    public boolean startsWith(byte[] prefix) {
+        return length >= prefix.length && matches(0, prefix);
+    }
+
+    public boolean is(byte[] value) {
+        return length == value.length && matches(0, value);
+    }
+
+    /**
+     * @return whether the remainder of the line starting at {@code from} equals {@code value}
+     */
+    public boolean endsWith(int from, byte[] value) {
+        return length - from == value.length && matches(from, value);
+    }
+
+    public int indexOf(byte b, int from) {
+        for (int i = Math.max(0, from); i < length; i++) {
+            if (body[offset + i] == b) return i;
+        }
+        return -1;
+    }
+
+    public boolean contains(byte[] needle, int from) {
+        for (int i = Math.max(0, from); i <= length - needle.length; i++) {
+            if (matches(i, needle)) return true;
+        }
+        return false;
+    }
+
+    private boolean matches(int from, byte[] value) {
+        for (int i = 0; i < value.length; i++) {
+            if (body[offset + from + i] != value[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new String(body, offset, length, StandardCharsets.UTF_8);
+    }
+
+    public static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
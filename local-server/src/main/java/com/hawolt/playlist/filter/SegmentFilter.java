@@ -0,0 +1,36 @@
+package com.hawolt.playlist.filter;
+
+/**
+ * Decides whether a media segment is content or part of an ad break. The upstream playlist is read
+ * from the top on every update, filters see every tag they registered for through {@link #getTags()}
+ * in playlist order and, unless they opt out through {@link #isSegmentAware()}, are asked about every
+ * segment once its URI line is reached.
+ * Instances are stateful and belong to a single playlist window.
+ */
+public interface SegmentFilter {
+    /**
+     * @return tag prefixes this filter wants to see, lines are only dispatched to filters registered for them
+     */
+    byte[][] getTags();
+
+    /**
+     * Called before the upstream playlist is read again.
+     */
+    default void reset() {
+    }
+
+    void onTag(LineView line);
+
+    /**
+     * @return false to drop the segment with the given URI
+     */
+    boolean accept(LineView uri);
+
+    /**
+     * @return false if {@link #accept(LineView)} keeps no per-segment state and accepts every segment, the chain
+     * then never asks this filter about segments
+     */
+    default boolean isSegmentAware() {
+        return true;
+    }
+}
@@ -0,0 +1,112 @@
+package com.hawolt.playlist.filter;
+
+import com.hawolt.metrics.Counter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the configured filters over a playlist. Tag lines are dispatched through a prefix trie so the cost per
+ * tag line depends on the length of the registered tags, not on how many there are. Only filters that are
+ * {@link SegmentFilter#isSegmentAware() segment aware} are asked about segments.
+ */
+public class SegmentFilterChain {
+    private final SegmentFilter[] filters, segmentFilters;
+    private final Counter[] counters;
+    private final Node root = new Node();
+
+    public SegmentFilterChain(SegmentFilter[] filters, Counter[] counters) {
+        this.filters = filters;
+        List<SegmentFilter> segmentFilters = new ArrayList<>();
+        List<Counter> segmentCounters = new ArrayList<>();
+        for (int i = 0; i < filters.length; i++) {
+            for (byte[] tag : filters[i].getTags()) {
+                root.insert(tag, filters[i]);
+            }
+            if (!filters[i].isSegmentAware()) continue;
+            segmentFilters.add(filters[i]);
+            segmentCounters.add(counters[i]);
+        }
+        this.segmentFilters = segmentFilters.toArray(new SegmentFilter[0]);
+        this.counters = segmentCounters.toArray(new Counter[0]);
+    }
+
+    public void reset() {
+        for (SegmentFilter filter : filters) {
+            filter.reset();
+        }
+    }
+
+    /**
+     * Walks the trie along the line, every node passed that ends a registered tag notifies its listeners,
+     * a line matching several tags is dispatched from the shortest to the longest.
+     */
+    public void onTag(LineView line) {
+        Node node = root;
+        for (int i = 0; node != null; i++) {
+            for (SegmentFilter filter : node.listeners) {
+                filter.onTag(line);
+            }
+            if (i == line.length()) return;
+            node = node.next(line.byteAt(i));
+        }
+    }
+
+    /**
+     * Every segment aware filter is asked about every segment so that filters tracking state across segments
+     * stay in sync, the drop is attributed to the first filter that rejected the segment.
+     *
+     * @param fresh whether the segment has not been seen before, only fresh segments are counted
+     */
+    public boolean accept(LineView uri, boolean fresh) {
+        int rejected = -1;
+        for (int i = 0; i < segmentFilters.length; i++) {
+            if (!segmentFilters[i].accept(uri) && rejected == -1) rejected = i;
+        }
+        if (rejected == -1) return true;
+        if (fresh) counters[rejected].increment();
+        return false;
+    }
+
+    public int size() {
+        return filters.length;
+    }
+
+    /**
+     * Trie node with its children kept in a small array, registered tags share long prefixes so nodes rarely
+     * have more than a couple of children.
+     */
+    private static class Node {
+        private static final SegmentFilter[] NONE = new SegmentFilter[0];
+        private static final Node[] EMPTY = new Node[0];
+
+        private SegmentFilter[] listeners = NONE;
+        private Node[] children = EMPTY;
+        private byte[] keys = new byte[0];
+
+        private Node next(byte b) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == b) return children[i];
+            }
+            return null;
+        }
+
+        private void insert(byte[] tag, SegmentFilter filter) {
+            Node node = this;
+            for (byte b : tag) {
+                Node child = node.next(b);
+                if (child == null) {
+                    child = new Node();
+                    node.keys = Arrays.copyOf(node.keys, node.keys.length + 1);
+                    node.keys[node.keys.length - 1] = b;
+                    node.children = Arrays.copyOf(node.children, node.children.length + 1);
+                    node.children[node.children.length - 1] = child;
+                }
+                node = child;
+            }
+            node.listeners = Arrays.copyOf(node.listeners, node.listeners.length + 1);
+            node.listeners[node.listeners.length - 1] = filter;
+        }
+    }
+}
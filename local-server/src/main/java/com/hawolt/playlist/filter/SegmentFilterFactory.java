@@ -0,0 +1,11 @@
+package com.hawolt.playlist.filter;
+
+/**
+ * Service provider for additional filters, implementations are discovered with {@link java.util.ServiceLoader}
+ * and can be enabled by name through {@code noads.ad.filters} like the built-in ones.
+ */
+public interface SegmentFilterFactory {
+    String getName();
+
+    SegmentFilter create();
+}
@@ -0,0 +1,90 @@
+package com.hawolt.playlist.filter;
+
+import com.hawolt.Settings;
+import com.hawolt.logger.Logger;
+import com.hawolt.metrics.Counter;
+import com.hawolt.metrics.Metrics;
+import com.hawolt.playlist.filter.impl.AmazonTitleFilter;
+import com.hawolt.playlist.filter.impl.DiscontinuityFilter;
+import com.hawolt.playlist.filter.impl.ProgramDateTimeFilter;
+import com.hawolt.playlist.filter.impl.StitchedAdFilter;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the built-in filters and the ones provided through {@link SegmentFilterFactory},
+ * the chain used by every playlist window is resolved once from {@code noads.ad.filters}.
+ */
+public class SegmentFilters {
+    private static final Map<String, SegmentFilterFactory> FACTORIES = discover();
+    private static final Map<String, Counter> COUNTERS = new HashMap<>();
+    private static final List<SegmentFilterFactory> CONFIGURED = resolve(Settings.AD_FILTERS);
+
+    public static SegmentFilterChain create() {
+        return create(CONFIGURED);
+    }
+
+    public static SegmentFilterChain create(String names) {
+        return create(resolve(names));
+    }
+
+    public static Set<String> getAvailable() {
+        return FACTORIES.keySet();
+    }
+
+    private static SegmentFilterChain create(List<SegmentFilterFactory> factories) {
+        SegmentFilter[] filters = new SegmentFilter[factories.size()];
+        Counter[] counters = new Counter[factories.size()];
+        for (int i = 0; i < factories.size(); i++) {
+            filters[i] = factories.get(i).create();
+            counters[i] = counter(factories.get(i).getName());
+        }
+        return new SegmentFilterChain(filters, counters);
+    }
+
+    private static synchronized Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> Metrics.counter(
+                "noads_ad_segments_filtered_total",
+                String.format("filter=\"%s\"", key)
+        ));
+    }
+
+    private static List<SegmentFilterFactory> resolve(String names) {
+        List<SegmentFilterFactory> factories = new ArrayList<>();
+        for (String name : names.split(",")) {
+            String key = name.trim();
+            if (key.isEmpty()) continue;
+            SegmentFilterFactory factory = FACTORIES.get(key);
+            if (factory != null) factories.add(factory);
+            else Logger.error("Unknown segment filter {}, available: {}", key, FACTORIES.keySet());
+        }
+        return factories;
+    }
+
+    private static Map<String, SegmentFilterFactory> discover() {
+        Map<String, SegmentFilterFactory> factories = new LinkedHashMap<>();
+        register(factories, "program-date-time", ProgramDateTimeFilter::new);
+        register(factories, "stitched-ad", StitchedAdFilter::new);
+        register(factories, "amazon", AmazonTitleFilter::new);
+        register(factories, "discontinuity", DiscontinuityFilter::new);
+        for (SegmentFilterFactory factory : ServiceLoader.load(SegmentFilterFactory.class)) {
+            factories.put(factory.getName(), factory);
+        }
+        return factories;
+    }
+
+    private static void register(Map<String, SegmentFilterFactory> factories, String name, Supplier<SegmentFilter> supplier) {
+        factories.put(name, new SegmentFilterFactory() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public SegmentFilter create() {
+                return supplier.get();
+            }
+        });
+    }
+}
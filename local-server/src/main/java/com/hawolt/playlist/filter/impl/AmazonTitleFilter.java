@@ -0,0 +1,38 @@
+package com.hawolt.playlist.filter.impl;
+
+import com.hawolt.playlist.filter.LineView;
+import com.hawolt.playlist.filter.SegmentFilter;
+
+/**
+ * Drops segments whose {@code #EXTINF} title names the ad server, e.g. {@code #EXTINF:2.000,Amazon|4215263781}.
+ */
+public class AmazonTitleFilter implements SegmentFilter {
+    private static final byte[] EXTINF = LineView.ascii("#EXTINF:");
+    private static final byte[][] TAGS = {EXTINF};
+    private static final byte[] AMAZON = LineView.ascii("Amazon");
+
+    private boolean advertisement;
+
+    @Override
+    public byte[][] getTags() {
+        return TAGS;
+    }
+
+    @Override
+    public void reset() {
+        this.advertisement = false;
+    }
+
+    @Override
+    public void onTag(LineView line) {
+        int title = line.indexOf((byte) ',', EXTINF.length);
+        this.advertisement = title != -1 && line.contains(AMAZON, title + 1);
+    }
+
+    @Override
+    public boolean accept(LineView uri) {
+        boolean accepted = !advertisement;
+        this.advertisement = false;
+        return accepted;
+    }
+}
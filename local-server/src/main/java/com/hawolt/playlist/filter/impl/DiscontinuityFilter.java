@@ -0,0 +1,43 @@
+package com.hawolt.playlist.filter.impl;
+
+import com.hawolt.playlist.filter.LineView;
+import com.hawolt.playlist.filter.SegmentFilter;
+
+/**
+ * Treats every run of segments between two {@code #EXT-X-DISCONTINUITY} tags as an ad break
+ * when the first segment of the run is not titled {@code live}.
+ */
+public class DiscontinuityFilter implements SegmentFilter {
+    private static final byte[] EXTINF = LineView.ascii("#EXTINF:");
+    private static final byte[] DISCONTINUITY = LineView.ascii("#EXT-X-DISCONTINUITY");
+    private static final byte[][] TAGS = {EXTINF, DISCONTINUITY};
+    private static final byte[] LIVE = LineView.ascii("live");
+
+    private boolean pending, advertisement;
+
+    @Override
+    public byte[][] getTags() {
+        return TAGS;
+    }
+
+    @Override
+    public void reset() {
+        this.pending = advertisement = false;
+    }
+
+    @Override
+    public void onTag(LineView line) {
+        if (line.is(DISCONTINUITY)) {
+            this.pending = true;
+        } else if (pending && line.startsWith(EXTINF)) {
+            int title = line.indexOf((byte) ',', EXTINF.length);
+            this.advertisement = title == -1 || !line.endsWith(title + 1, LIVE);
+            this.pending = false;
+        }
+    }
+
+    @Override
+    public boolean accept(LineView uri) {
+        return !advertisement;
+    }
+}
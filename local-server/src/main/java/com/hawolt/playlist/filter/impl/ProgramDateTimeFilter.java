@@ -0,0 +1,35 @@
+package com.hawolt.playlist.filter.impl;
+
+import com.hawolt.playlist.filter.LineView;
+import com.hawolt.playlist.filter.SegmentFilter;
+
+/**
+ * Content segments are announced with {@code #EXT-X-PROGRAM-DATE-TIME}, stitched ads are not.
+ */
+public class ProgramDateTimeFilter implements SegmentFilter {
+    private static final byte[][] TAGS = {LineView.ascii("#EXT-X-PROGRAM-DATE-TIME")};
+
+    private boolean announced;
+
+    @Override
+    public byte[][] getTags() {
+        return TAGS;
+    }
+
+    @Override
+    public void reset() {
+        this.announced = false;
+    }
+
+    @Override
+    public void onTag(LineView line) {
+        this.announced = true;
+    }
+
+    @Override
+    public boolean accept(LineView uri) {
+        boolean accepted = announced;
+        this.announced = false;
+        return accepted;
+    }
+}
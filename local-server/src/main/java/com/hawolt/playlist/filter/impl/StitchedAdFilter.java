@@ -0,0 +1,42 @@
+package com.hawolt.playlist.filter.impl;
+
+import com.hawolt.playlist.filter.LineView;
+import com.hawolt.playlist.filter.SegmentFilter;
+
+/**
+ * An {@code #EXT-X-DATERANGE} of class {@code twitch-stitched-ad} opens an ad break,
+ * every following segment is dropped until the discontinuity that returns to the stream.
+ */
+public class StitchedAdFilter implements SegmentFilter {
+    private static final byte[] DATERANGE = LineView.ascii("#EXT-X-DATERANGE:");
+    private static final byte[] DISCONTINUITY = LineView.ascii("#EXT-X-DISCONTINUITY");
+    private static final byte[][] TAGS = {DATERANGE, DISCONTINUITY};
+    private static final byte[] STITCHED_AD = LineView.ascii("CLASS=\"twitch-stitched-ad\"");
+
+    private boolean active, dropped;
+
+    @Override
+    public byte[][] getTags() {
+        return TAGS;
+    }
+
+    @Override
+    public void reset() {
+        this.active = dropped = false;
+    }
+
+    @Override
+    public void onTag(LineView line) {
+        if (line.is(DISCONTINUITY)) {
+            if (dropped) active = dropped = false;
+        } else if (line.startsWith(DATERANGE) && line.contains(STITCHED_AD, DATERANGE.length)) {
+            this.active = true;
+        }
+    }
+
+    @Override
+    public boolean accept(LineView uri) {
+        if (active) dropped = true;
+        return !active;
+    }
+}
@@ -0,0 +1,56 @@
+package com.hawolt.poll;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Works out the delay until the next media playlist poll from {@code #EXT-X-TARGETDURATION} and the
+ * observed gap between newly appearing segments. Polls are timed shortly after the next segment is due,
+ * unchanged playlists and upstream errors back off with jitter.
+ */
+public class PollCadence {
+    private static final long MINIMUM_DELAY = 250L;
+    private static final long ARRIVAL_LEAD = 100L;
+    private static final long MAXIMUM_BACKOFF = TimeUnit.SECONDS.toMillis(30);
+
+    private long targetDuration = TimeUnit.SECONDS.toMillis(2);
+    private long arrival, gap;
+    private int unchanged, failures;
+
+    public void onUpdate(boolean appended, int targetDuration) {
+        if (targetDuration > 0) this.targetDuration = TimeUnit.SECONDS.toMillis(targetDuration);
+        this.failures = 0;
+        if (!appended) {
+            this.unchanged++;
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (arrival != 0L) {
+            long observed = Math.min(now - arrival, this.targetDuration);
+            this.gap = gap == 0L ? observed : (gap * 3 + observed) / 4;
+        }
+        this.arrival = now;
+        this.unchanged = 0;
+    }
+
+    public void onFailure() {
+        this.failures++;
+    }
+
+    public long next() {
+        if (failures > 0) {
+            long backoff = Math.min(MAXIMUM_BACKOFF, targetDuration << Math.min(failures - 1, 4));
+            return backoff + jitter(backoff / 4);
+        }
+        long expected = gap != 0L ? gap : targetDuration;
+        if (arrival == 0L) return Math.max(MINIMUM_DELAY, expected / 2);
+        long due = arrival + expected + ARRIVAL_LEAD - System.currentTimeMillis();
+        if (due >= MINIMUM_DELAY && unchanged == 0) return due;
+        long backoff = Math.min(expected, MINIMUM_DELAY << Math.min(unchanged, 4));
+        return Math.max(MINIMUM_DELAY, backoff) + jitter(MINIMUM_DELAY / 2);
+    }
+
+    private static long jitter(long bound) {
+        return bound <= 0 ? 0L : ThreadLocalRandom.current().nextLong(bound);
+    }
+}
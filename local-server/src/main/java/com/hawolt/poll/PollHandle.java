@@ -0,0 +1,33 @@
+package com.hawolt.poll;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class PollHandle {
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final Runnable release;
+    private volatile ScheduledFuture<?> future;
+
+    PollHandle(Runnable release) {
+        this.release = release;
+    }
+
+    void setFuture(ScheduledFuture<?> future) {
+        this.future = future;
+        if (cancelled.get()) future.cancel(false);
+    }
+
+    /**
+     * Only the first call releases the registration, later calls are no-ops.
+     */
+    public void cancel() {
+        if (!cancelled.compareAndSet(false, true)) return;
+        release.run();
+        ScheduledFuture<?> future = this.future;
+        if (future != null) future.cancel(false);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+}
@@ -0,0 +1,150 @@
+package com.hawolt.poll;
+
+import com.hawolt.Settings;
+import com.hawolt.logger.Logger;
+import com.hawolt.metrics.Histogram;
+import com.hawolt.metrics.Metrics;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide polling engine, a single timer thread only keeps track of due polls and hands them off to
+ * the workers. Polls block on upstream I/O, so workers are virtual threads where available and otherwise
+ * a bounded pool, a poll that does not fit into its queue is shed and retried shortly after instead of
+ * queueing up without bound. The delay between the due time and the start of a poll is the dispatch lag.
+ */
+public class PollScheduler {
+    private static final long SHED_DELAY = 250L;
+    private static final PollScheduler INSTANCE = new PollScheduler(Settings.POLL_THREADS, Settings.POLL_QUEUE, Metrics.POLL_LAG);
+
+    public static PollScheduler getGlobalScheduler() {
+        return INSTANCE;
+    }
+
+    private final AtomicInteger registrations = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder shed = new LongAdder();
+    private final ScheduledExecutorService timer;
+    private final ExecutorService workers;
+    private final Histogram lag;
+
+    public PollScheduler(int parallelism, int capacity, Histogram lag) {
+        this.timer = Executors.newSingleThreadScheduledExecutor(factory("poll-timer"));
+        this.workers = VirtualThreads.newExecutor("poll-worker", parallelism, capacity);
+        this.lag = lag;
+    }
+
+    public PollHandle register(Poller poller, long initialDelay) {
+        PollHandle handle = new PollHandle(registrations::decrementAndGet);
+        registrations.incrementAndGet();
+        schedule(poller, handle, initialDelay);
+        return handle;
+    }
+
+    private void schedule(Poller poller, PollHandle handle, long delay) {
+        if (handle.isCancelled()) return;
+        long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delay));
+        try {
+            handle.setFuture(timer.schedule(
+                    () -> fire(poller, handle, due),
+                    Math.max(0L, delay),
+                    TimeUnit.MILLISECONDS
+            ));
+        } catch (RejectedExecutionException e) {
+            // the scheduler has been shut down
+            handle.cancel();
+        }
+    }
+
+    private void fire(Poller poller, PollHandle handle, long due) {
+        try {
+            workers.execute(() -> dispatch(poller, handle, due));
+        } catch (RejectedExecutionException e) {
+            shed.increment();
+            schedule(poller, handle, SHED_DELAY);
+        }
+    }
+
+    private void dispatch(Poller poller, PollHandle handle, long due) {
+        lag.since(due);
+        active.incrementAndGet();
+        long next = -1L;
+        try {
+            if (!handle.isCancelled()) next = poller.poll();
+        } catch (Throwable throwable) {
+            Logger.error(throwable);
+        } finally {
+            active.decrementAndGet();
+        }
+        if (next < 0) handle.cancel();
+        schedule(poller, handle, next);
+    }
+
+    /**
+     * Runs a one-off task on the workers, when the workers are saturated the task runs on the caller.
+     */
+    public void execute(Runnable runnable) {
+        try {
+            workers.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            shed.increment();
+            runnable.run();
+        }
+    }
+
+    public int getRegistrations() {
+        return registrations.get();
+    }
+
+    /**
+     * @return amount of polls currently running
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return amount of polls and tasks that did not fit into the worker queue
+     */
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    public Histogram getDispatchLag() {
+        return lag;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Executor with a fixed amount of daemon threads and a bounded queue, used for work that must not
+     * queue up in front of the poll workers.
+     */
+    public static ThreadPoolExecutor bounded(String name, int threads, int capacity, RejectedExecutionHandler handler) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                30L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                factory(name),
+                handler
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static ThreadFactory factory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, String.join("-", name, String.valueOf(counter.incrementAndGet())));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package com.hawolt.poll;
+
+public interface Poller {
+    /**
+     * Executes a single poll on one of the shared worker threads.
+     *
+     * @return delay in milliseconds until the next poll, a negative value stops polling
+     */
+    long poll();
+}
@@ -0,0 +1,41 @@
+package com.hawolt.poll;
+
+import com.hawolt.Settings;
+import com.hawolt.logger.Logger;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Virtual threads are looked up reflectively so the project keeps targeting Java 17, on a runtime without
+ * them or with {@code noads.virtual.threads} turned off a bounded pool of daemon threads is used instead
+ * which rejects tasks once its queue is full.
+ */
+public class VirtualThreads {
+    private static final Method PER_TASK_EXECUTOR = lookup();
+
+    public static boolean isEnabled() {
+        return Settings.VIRTUAL_THREADS && PER_TASK_EXECUTOR != null;
+    }
+
+    public static ExecutorService newExecutor(String name, int threads, int capacity) {
+        if (isEnabled()) {
+            try {
+                return (ExecutorService) PER_TASK_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                Logger.error(e);
+            }
+        }
+        return PollScheduler.bounded(name, threads, capacity, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.hawolt.segment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class Segment {
+    private final CompletableFuture<byte[]> data = new CompletableFuture<>();
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final SegmentRing ring;
+    private final long sequence;
+    private final String url;
+
+    Segment(SegmentRing ring, long sequence, String url) {
+        this.sequence = sequence;
+        this.ring = ring;
+        this.url = url;
+    }
+
+    boolean request() {
+        return requested.compareAndSet(false, true);
+    }
+
+    SegmentRing getRing() {
+        return ring;
+    }
+
+    public CompletableFuture<byte[]> getData() {
+        return data;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getURL() {
+        return url;
+    }
+}
@@ -0,0 +1,56 @@
+package com.hawolt.segment;
+
+import com.hawolt.Settings;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Global byte budget shared by all segment rings, evicts the bytes of the least recently served segment once
+ * exceeded. Evicted segments keep their URL so a later request fetches them again.
+ */
+public class SegmentCache {
+    private static final SegmentCache INSTANCE = new SegmentCache(Settings.SEGMENT_CACHE_BYTES);
+
+    public static SegmentCache getGlobalCache() {
+        return INSTANCE;
+    }
+
+    private final Map<Segment, Integer> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final long budget;
+    private long size;
+
+    public SegmentCache(long budget) {
+        this.budget = budget;
+    }
+
+    public synchronized void admit(Segment segment, int bytes) {
+        if (segment.getRing().get(segment.getSequence()) != segment) return;
+        Integer previous = entries.put(segment, bytes);
+        if (previous != null) size -= previous;
+        size += bytes;
+        Iterator<Map.Entry<Segment, Integer>> iterator = entries.entrySet().iterator();
+        while (size > budget && iterator.hasNext()) {
+            Map.Entry<Segment, Integer> entry = iterator.next();
+            if (entry.getKey() == segment) continue;
+            size -= entry.getValue();
+            entry.getKey().getRing().evict(entry.getKey());
+            iterator.remove();
+        }
+    }
+
+    public synchronized void touch(Segment segment) {
+        entries.get(segment);
+    }
+
+    public synchronized void release(Segment segment) {
+        Integer bytes = entries.remove(segment);
+        if (bytes != null) size -= bytes;
+        segment.getRing().remove(segment);
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+}
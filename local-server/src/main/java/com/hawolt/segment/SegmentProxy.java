@@ -0,0 +1,81 @@
+package com.hawolt.segment;
+
+import com.hawolt.Settings;
+import com.hawolt.ionhttp.IonClient;
+import com.hawolt.ionhttp.request.IonRequest;
+import com.hawolt.ionhttp.request.IonResponse;
+import com.hawolt.logger.Logger;
+import com.hawolt.metrics.Metrics;
+import com.hawolt.poll.PollScheduler;
+import com.hawolt.upstream.CircuitBreakers;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+public class SegmentProxy {
+    private static final ExecutorService FETCH = PollScheduler.bounded(
+            "segment-fetch",
+            Settings.SEGMENT_THREADS,
+            Settings.SEGMENT_QUEUE,
+            new ThreadPoolExecutor.AbortPolicy()
+    );
+
+    private final SegmentRing ring = new SegmentRing(Settings.SEGMENT_RING_SIZE);
+    private final IonClient client;
+    private final String username;
+
+    public SegmentProxy(String username, IonClient client) {
+        this.username = username;
+        this.client = client;
+    }
+
+    public void announce(long sequence, String url) {
+        ring.put(sequence, url);
+    }
+
+    public void prefetch(long sequence) {
+        Segment segment = ring.get(sequence);
+        if (segment != null) load(segment);
+    }
+
+    public CompletableFuture<byte[]> get(long sequence) {
+        Segment segment = ring.get(sequence);
+        if (segment == null) return null;
+        if (segment.getData().isDone()) Metrics.SEGMENT_CACHE_HIT.increment();
+        else Metrics.SEGMENT_CACHE_MISS.increment();
+        load(segment);
+        SegmentCache.getGlobalCache().touch(segment);
+        return segment.getData();
+    }
+
+    private void load(Segment segment) {
+        if (!segment.request()) return;
+        try {
+            FETCH.execute(() -> fetch(segment));
+        } catch (RejectedExecutionException e) {
+            Logger.debug("segment queue full, dropping {} for {}", segment.getSequence(), username);
+            segment.getRing().remove(segment);
+            segment.getData().completeExceptionally(new IOException("SEGMENT_QUEUE_FULL", e));
+        }
+    }
+
+    private void fetch(Segment segment) {
+        try (IonResponse response = CircuitBreakers.CDN.execute(client, IonRequest.on(segment.getURL()).get())) {
+            if (response.code() != 200) throw new IOException(String.format("SEGMENT_%s", response.code()));
+            byte[] data = response.body();
+            SegmentCache.getGlobalCache().admit(segment, data.length);
+            segment.getData().complete(data);
+        } catch (Exception e) {
+            Logger.debug("failed to load segment {} for {}", segment.getSequence(), username);
+            segment.getRing().remove(segment);
+            segment.getData().completeExceptionally(e);
+        }
+    }
+
+    public void close() {
+        ring.clear();
+    }
+}
@@ -0,0 +1,58 @@
+package com.hawolt.segment;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed size ring of the most recent segments of a single channel, slots are indexed by media sequence.
+ */
+public class SegmentRing {
+    private final AtomicReferenceArray<Segment> slots;
+    private volatile long latest = -1L;
+
+    public SegmentRing(int capacity) {
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public Segment put(long sequence, String url) {
+        Segment existing = get(sequence);
+        // a segment announced through a prefetch hint keeps its in-flight download once it is listed
+        if (existing != null && existing.getURL().equals(url)) return existing;
+        Segment segment = new Segment(this, sequence, url);
+        Segment previous = slots.getAndSet(index(sequence), segment);
+        if (previous != null) SegmentCache.getGlobalCache().release(previous);
+        if (sequence > latest) this.latest = sequence;
+        return segment;
+    }
+
+    public Segment get(long sequence) {
+        Segment segment = slots.get(index(sequence));
+        return segment != null && segment.getSequence() == sequence ? segment : null;
+    }
+
+    /**
+     * Replaces the segment with an empty one for the same sequence and URL, the bytes are dropped while the
+     * segment stays listed and is fetched again on its next request.
+     */
+    void evict(Segment segment) {
+        slots.compareAndSet(index(segment.getSequence()), segment, new Segment(this, segment.getSequence(), segment.getURL()));
+    }
+
+    void remove(Segment segment) {
+        slots.compareAndSet(index(segment.getSequence()), segment, null);
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            Segment segment = slots.getAndSet(i, null);
+            if (segment != null) SegmentCache.getGlobalCache().release(segment);
+        }
+    }
+
+    public long getLatestSequence() {
+        return latest;
+    }
+
+    private int index(long sequence) {
+        return (int) Math.floorMod(sequence, (long) slots.length());
+    }
+}
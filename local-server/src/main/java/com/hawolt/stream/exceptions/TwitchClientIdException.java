@@ -0,0 +1,7 @@
+package com.hawolt.stream.exceptions;
+
+public class TwitchClientIdException extends TwitchException {
+    public TwitchClientIdException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.hawolt.stream.exceptions;
+
+public class TwitchTokenExpiredException extends TwitchException {
+    public TwitchTokenExpiredException(String message) {
+        super(message);
+    }
+}
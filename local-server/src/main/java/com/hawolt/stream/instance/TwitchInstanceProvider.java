@@ -6,6 +6,15 @@ import com.hawolt.stream.exceptions.TwitchCookieException;
 import java.io.IOException;
 
 public abstract class TwitchInstanceProvider {
+    protected final String channel;
+
+    public TwitchInstanceProvider(String channel) {
+        this.channel = channel;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
 
     public abstract TwitchInstance getInstance(IonClient client) throws IOException, TwitchCookieException;
 }
\ No newline at end of file
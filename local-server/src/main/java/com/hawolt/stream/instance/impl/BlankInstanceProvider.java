@@ -5,10 +5,8 @@ import com.hawolt.stream.instance.TwitchInstance;
 import com.hawolt.stream.instance.TwitchInstanceProvider;
 
 public class BlankInstanceProvider extends TwitchInstanceProvider {
-    private final String channel;
-
     public BlankInstanceProvider(String channel) {
-        this.channel = channel;
+        super(channel);
     }
 
     @Override
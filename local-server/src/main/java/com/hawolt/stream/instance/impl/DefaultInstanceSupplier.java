@@ -8,31 +8,36 @@ import com.hawolt.logger.Logger;
 import com.hawolt.stream.exceptions.TwitchCookieException;
 import com.hawolt.stream.instance.TwitchInstance;
 import com.hawolt.stream.instance.TwitchInstanceProvider;
+import com.hawolt.stream.twitch.TwitchEndpoints;
+import com.hawolt.stream.twitch.TwitchState;
+import com.hawolt.upstream.CircuitBreakers;
 
 import java.io.IOException;
 
 public class DefaultInstanceSupplier extends TwitchInstanceProvider {
-    private final String channel;
-
     public DefaultInstanceSupplier(String channel) {
-        this.channel = channel;
+        super(channel);
     }
 
     @Override
     public TwitchInstance getInstance(IonClient client) throws IOException, TwitchCookieException {
-        IonRequest request = IonRequest.on(String.format("https://www.twitch.tv/%s", channel))
+        TwitchInstance stored = TwitchState.getGlobalState().getInstance(channel);
+        if (stored != null) return stored;
+        IonRequest request = IonRequest.on(String.format("%s/%s", TwitchEndpoints.WWW, channel))
                 .addHeader("Accept", "*/*")
                 .addHeader("Connection", "keep-alive")
-                .addHeader("Host", "www.twitch.tv")
+                .addHeader("Host", TwitchEndpoints.host(TwitchEndpoints.WWW))
                 .get();
-        try (IonResponse response = client.execute(request)) {
-            return getCookie(client);
+        try (IonResponse response = CircuitBreakers.WWW.execute(client, request)) {
+            TwitchInstance instance = getCookie(client);
+            TwitchState.getGlobalState().putInstance(instance);
+            return instance;
         }
     }
 
     private TwitchInstance getCookie(IonClient client) throws TwitchCookieException {
         CookieManager manager = client.getCookieManager();
-        String twitch = manager.getCookie("twitch.tv");
+        String twitch = manager.getCookie(TwitchEndpoints.cookieDomain());
         String[] cookies = twitch.split(";");
         String uniqueId = null, uniqueIdDurable = null;
         for (String cookie : cookies) {
@@ -1,24 +1,95 @@
 package com.hawolt.stream.playlist;
 
-import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
-public class M3U8 extends HashMap<String, String> {
-    private static final Pattern pattern = Pattern.compile(
-            "([a-zA-Z0-9\\-]+)=((\"[^\"]*\")|([^,]*))(,|$)"
-    );
+/**
+ * Attribute list of a single tag following the RFC 8216 rules, quoted strings may contain commas
+ * and are stored without their quotes. Names and values are kept in two compact parallel arrays.
+ */
+public class M3U8 {
+    private final String[] names, values;
 
     public M3U8(String line) {
-        String tags = line.split(":", 2)[1];
-        Matcher matcher = pattern.matcher(tags);
-        while (matcher.find()) {
-            String key = matcher.group(1).trim();
-            String value = matcher.group(2).trim();
-            if (value.startsWith("\"") && value.endsWith("\"")) {
-                value = value.substring(1, value.length() - 1);
+        int colon = line.indexOf(':');
+        int position = colon == -1 ? line.length() : colon + 1, length = line.length(), size = 0;
+        String[] names = new String[8], values = new String[8];
+        while (position < length) {
+            while (position < length && line.charAt(position) == ' ') position++;
+            int start = position;
+            while (position < length && line.charAt(position) != '=' && line.charAt(position) != ',') position++;
+            if (position >= length || line.charAt(position) == ',') {
+                position++;
+                continue;
             }
-            put(key, value);
+            String name = line.substring(start, position).trim();
+            String value;
+            if (++position < length && line.charAt(position) == '"') {
+                int end = line.indexOf('"', position + 1);
+                if (end == -1) end = length;
+                value = line.substring(position + 1, end);
+                position = end + 1;
+                while (position < length && line.charAt(position) != ',') position++;
+            } else {
+                int end = line.indexOf(',', position);
+                if (end == -1) end = length;
+                value = line.substring(position, end).trim();
+                position = end;
+            }
+            position++;
+            if (name.isEmpty()) continue;
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size << 1);
+                values = Arrays.copyOf(values, size << 1);
+            }
+            names[size] = name;
+            values[size++] = value;
+        }
+        this.names = Arrays.copyOf(names, size);
+        this.values = Arrays.copyOf(values, size);
+    }
+
+    public String get(String name) {
+        for (int i = names.length - 1; i >= 0; i--) {
+            if (names[i].equals(name)) return values[i];
+        }
+        return null;
+    }
+
+    public boolean containsKey(String name) {
+        return get(name) != null;
+    }
+
+    public long getLong(String name, long fallback) {
+        String value = get(name);
+        if (value == null) return fallback;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    public double getDouble(String name, double fallback) {
+        String value = get(name);
+        if (value == null) return fallback;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(names[i]).append('=').append(values[i]);
         }
+        return builder.append('}').toString();
     }
 }
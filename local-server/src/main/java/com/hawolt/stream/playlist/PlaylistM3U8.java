@@ -3,8 +3,11 @@ package com.hawolt.stream.playlist;
 import java.util.Objects;
 
 public class PlaylistM3U8 {
+    private long bandwidth = -1L;
+    private int width, height;
+    private double frameRate;
     private M3U8 media, stream;
-    private String url;
+    private String url, codecs;
 
     void setMediaM3U8(M3U8 media) {
         this.media = media;
@@ -12,6 +15,18 @@ public class PlaylistM3U8 {
 
     void setStreamM3U8(M3U8 stream) {
         this.stream = stream;
+        this.bandwidth = stream.getLong("BANDWIDTH", -1L);
+        this.frameRate = stream.getDouble("FRAME-RATE", 0D);
+        this.codecs = stream.get("CODECS");
+        String resolution = stream.get("RESOLUTION");
+        int separator = resolution != null ? resolution.indexOf('x') : -1;
+        if (separator == -1) return;
+        try {
+            this.width = Integer.parseInt(resolution.substring(0, separator));
+            this.height = Integer.parseInt(resolution.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            this.width = this.height = 0;
+        }
     }
 
     void setURL(String url) {
@@ -30,6 +45,29 @@ public class PlaylistM3U8 {
         return url;
     }
 
+    /**
+     * @return the BANDWIDTH attribute of the variant, -1 when the variant does not declare one
+     */
+    public long getBandwidth() {
+        return bandwidth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    public String getCodecs() {
+        return codecs;
+    }
+
     @Override
     public String toString() {
         return "com.hawolt.playlist.PlaylistM3U8{" +
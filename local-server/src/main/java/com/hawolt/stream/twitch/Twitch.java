@@ -3,54 +3,96 @@ package com.hawolt.stream.twitch;
 import com.hawolt.ionhttp.IonClient;
 import com.hawolt.ionhttp.request.IonRequest;
 import com.hawolt.ionhttp.request.IonResponse;
+import com.hawolt.logger.Logger;
+import com.hawolt.poll.PollScheduler;
 import com.hawolt.stream.exceptions.TwitchInitializationException;
 import com.hawolt.stream.exceptions.TwitchScriptException;
+import com.hawolt.upstream.CircuitBreakers;
+import com.hawolt.upstream.RetryBudget;
+import com.hawolt.upstream.RetryBudgetExhaustedException;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Twitch {
-    private static final Object lock = new Object();
-    private static TwitchConfiguration configuration;
-    private static long timestamp;
+    private static final AtomicReference<CompletableFuture<TwitchConfiguration>> refresh = new AtomicReference<>();
+    private static final AtomicReference<Snapshot> configuration = new AtomicReference<>(restore());
+    private static final long CONFIGURATION_TTL = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_ATTEMPTS = 3;
 
-    private static void simulate(IonClient client, String channel) throws IOException {
-        Twitch.timestamp = System.currentTimeMillis();
-        IonRequest request = IonRequest.on(String.format("https://www.twitch.tv/%s", channel))
-                .addHeader("Accept", "*/*")
-                .addHeader("Connection", "keep-alive")
-                .addHeader("Host", "www.twitch.tv")
-                .get();
-        try (IonResponse response = client.execute(request)) {
-            if (response.code() == 405) simulate(client, channel);
+    /**
+     * Serves the last known configuration right away and revalidates it in the background once stale,
+     * without a known configuration all callers share a single in-flight fetch.
+     */
+    public static TwitchConfiguration getConfiguration(IonClient client, String channel) throws IOException, TwitchScriptException, TwitchInitializationException {
+        Snapshot snapshot = configuration.get();
+        if (snapshot != null) {
+            boolean stale = System.currentTimeMillis() - snapshot.timestamp > CONFIGURATION_TTL;
+            if (stale && refresh.get() == null) {
+                PollScheduler.getGlobalScheduler().execute(() -> refresh(client, channel));
+            }
+            return snapshot.configuration;
+        }
+        try {
+            return refresh(client, channel).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof TwitchScriptException) throw (TwitchScriptException) cause;
+            if (cause instanceof TwitchInitializationException) throw (TwitchInitializationException) cause;
+            throw e;
         }
     }
 
-    public static TwitchConfiguration getConfiguration(IonClient client, String channel) throws IOException, TwitchScriptException, TwitchInitializationException {
-        synchronized (lock) {
-            long timestamp = System.currentTimeMillis();
-            boolean condition = timestamp - Twitch.timestamp <= TimeUnit.MINUTES.toMillis(5);
-            if (configuration != null && condition) {
-                Twitch.simulate(client, channel);
-                return configuration;
-            }
+    private static CompletableFuture<TwitchConfiguration> refresh(IonClient client, String channel) {
+        CompletableFuture<TwitchConfiguration> future = new CompletableFuture<>();
+        CompletableFuture<TwitchConfiguration> current = refresh.compareAndExchange(null, future);
+        if (current != null) return current;
+        try {
+            TwitchConfiguration fetched = fetch(client, channel);
+            configuration.set(new Snapshot(fetched, System.currentTimeMillis()));
+            TwitchState.getGlobalState().putConfiguration(fetched);
+            future.complete(fetched);
+        } catch (Exception e) {
+            Logger.debug("failed to refresh configuration: {}", e.getMessage());
+            future.completeExceptionally(e);
+        } finally {
+            refresh.compareAndSet(future, null);
         }
-        Twitch.timestamp = System.currentTimeMillis();
-        IonRequest request = IonRequest.on(String.format("https://www.twitch.tv/%s", channel))
+        return future;
+    }
+
+    private static Snapshot restore() {
+        TwitchState.Entry<TwitchConfiguration> stored = TwitchState.getGlobalState().getConfiguration();
+        return stored != null ? new Snapshot(stored.getValue(), stored.getTimestamp()) : null;
+    }
+
+    private static TwitchConfiguration fetch(IonClient client, String channel) throws IOException, TwitchScriptException, TwitchInitializationException {
+        IonRequest request = IonRequest.on(String.format("%s/%s", TwitchEndpoints.WWW, channel))
                 .addHeader("Accept", "*/*")
                 .addHeader("Connection", "keep-alive")
-                .addHeader("Host", "www.twitch.tv")
+                .addHeader("Host", TwitchEndpoints.host(TwitchEndpoints.WWW))
                 .get();
-        try (IonResponse response = client.execute(request)) {
-            String content = new String(
-                    response.body(),
-                    StandardCharsets.UTF_8
-            );
-            return (Twitch.configuration = TwitchConfiguration.create(content));
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0 && !RetryBudget.getGlobalBudget().tryRetry()) {
+                throw new RetryBudgetExhaustedException("RETRY_BUDGET_EXHAUSTED");
+            }
+            try (IonResponse response = CircuitBreakers.WWW.execute(client, request)) {
+                if (response.code() == 405) continue;
+                String content = new String(
+                        response.body(),
+                        StandardCharsets.UTF_8
+                );
+                return TwitchConfiguration.create(content);
+            }
         }
+        throw new TwitchInitializationException("CONFIGURATION_405");
     }
 
     public static String getPatternValue(Pattern pattern, String script) throws TwitchScriptException {
@@ -60,4 +102,14 @@ public class Twitch {
         }
         throw new TwitchScriptException(String.format("NO_MATCH:[" + pattern.pattern() + "]"));
     }
+
+    private static class Snapshot {
+        private final TwitchConfiguration configuration;
+        private final long timestamp;
+
+        private Snapshot(TwitchConfiguration configuration, long timestamp) {
+            this.configuration = configuration;
+            this.timestamp = timestamp;
+        }
+    }
 }
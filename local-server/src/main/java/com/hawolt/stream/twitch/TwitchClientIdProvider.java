@@ -1,55 +1,101 @@
 package com.hawolt.stream.twitch;
 
+import com.hawolt.Settings;
 import com.hawolt.ionhttp.IonClient;
 import com.hawolt.ionhttp.request.IonRequest;
 import com.hawolt.ionhttp.request.IonResponse;
 import com.hawolt.logger.Logger;
+import com.hawolt.poll.PollScheduler;
+import com.hawolt.poll.Poller;
+import com.hawolt.stream.exceptions.TwitchClientIdException;
 import com.hawolt.stream.exceptions.TwitchScriptException;
+import com.hawolt.upstream.CircuitBreakers;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 
-public class TwitchClientIdProvider {
+/**
+ * Keeps the global client ID fresh in the background, the last good value is served while a refresh is
+ * running and failed refreshes are retried with a jittered exponential backoff.
+ */
+public class TwitchClientIdProvider implements Poller {
     private static final Pattern CLIENT_ID_PATTERN = Pattern.compile("clientId=\"(.*?)\"");
+    private static final long REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(50);
+    private static final long MINIMUM_BACKOFF = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAXIMUM_BACKOFF = TimeUnit.MINUTES.toMillis(5);
+    private static final long INITIAL_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
     private static final TwitchClientIdProvider INSTANCE = new TwitchClientIdProvider();
 
-    public static String getGlobalClientId() {
+    public static void initialize() {
+        Logger.debug("client ID provider initialized");
+    }
+
+    public static String getGlobalClientId() throws TwitchClientIdException {
         return INSTANCE.getClientId();
     }
 
-    private long timestamp = System.currentTimeMillis();
-    private String clientId;
+    private final CompletableFuture<String> initial = new CompletableFuture<>();
+    private volatile String clientId;
+    private long backoff = MINIMUM_BACKOFF;
 
     private TwitchClientIdProvider() {
+        TwitchState.Entry<String> stored = TwitchState.getGlobalState().getClientId();
+        long delay = 0;
+        if (stored != null) {
+            this.clientId = stored.getValue();
+            this.initial.complete(clientId);
+            delay = Math.max(0, REFRESH_INTERVAL - (System.currentTimeMillis() - stored.getTimestamp()));
+            Logger.debug("client ID restored, refreshing in {}ms", delay);
+        }
+        PollScheduler.getGlobalScheduler().register(this, delay);
+    }
+
+    @Override
+    public long poll() {
         try {
             this.clientId = fetchClientId();
+            this.initial.complete(clientId);
+            this.backoff = MINIMUM_BACKOFF;
+            TwitchState.getGlobalState().putClientId(clientId);
+            Logger.debug("client ID refreshed");
+            return REFRESH_INTERVAL;
         } catch (IOException | TwitchScriptException e) {
-            Logger.fatal("Failed to fetch client ID", e);
-            System.exit(1);
+            Logger.error("Failed to fetch client ID, retrying in {}ms", backoff);
+            long delay = backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            this.backoff = Math.min(MAXIMUM_BACKOFF, backoff << 1);
+            return delay;
         }
     }
 
-    public String getClientId() {
-        if ((System.currentTimeMillis() - timestamp) >= TimeUnit.HOURS.toMillis(1)) {
-            Logger.debug("client ID invalidated");
-            this.timestamp = System.currentTimeMillis();
-            try {
-                this.clientId = fetchClientId();
-            } catch (IOException | TwitchScriptException e) {
-                Logger.error(e);
-            }
+    /**
+     * Waits for the first client ID, requests without one would only be answered with misleading client
+     * errors. The wait never outlasts the stage timeout and ends early when the calling stage is interrupted.
+     */
+    public String getClientId() throws TwitchClientIdException {
+        String current = clientId;
+        if (current != null) return current;
+        try {
+            return initial.get(Math.min(INITIAL_TIMEOUT, Settings.STAGE_TIMEOUT), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TwitchClientIdException("CLIENT_ID_INTERRUPTED");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new TwitchClientIdException("CLIENT_ID_UNAVAILABLE");
         }
-        return clientId;
     }
 
     public String fetchClientId() throws IOException, TwitchScriptException {
-        IonRequest request = IonRequest.on("https://www.twitch.tv/?")
+        IonRequest request = IonRequest.on(String.format("%s/?", TwitchEndpoints.WWW))
                 .addHeader("Accept", "*/*")
                 .addHeader("Connection", "keep-alive")
-                .addHeader("Host", "www.twitch.tv")
+                .addHeader("Host", TwitchEndpoints.host(TwitchEndpoints.WWW))
                 .get();
-        try (IonResponse response = IonClient.getDefault().execute(request)) {
+        try (IonResponse response = CircuitBreakers.WWW.execute(IonClient.getDefault(), request)) {
             String content = new String(response.body());
             return Twitch.getPatternValue(CLIENT_ID_PATTERN, content);
         }
@@ -0,0 +1,39 @@
+package com.hawolt.stream.twitch;
+
+import com.hawolt.ionhttp.IonClient;
+import com.hawolt.ionhttp.cookies.impl.DefaultCookieManager;
+import com.hawolt.ionhttp.misc.TLS;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out the single client shared by all channels for cookie-less upstream requests (gql, usher, segments),
+ * only requests that depend on per-channel cookies get an isolated client of their own.
+ */
+public class TwitchClientPool {
+    private static final LongAdder isolated = new LongAdder();
+    private static final IonClient shared = builder().build();
+
+    public static IonClient getSharedClient() {
+        return shared;
+    }
+
+    /**
+     * @return a new client with its own cookie jar
+     */
+    public static IonClient createIsolatedClient() {
+        isolated.increment();
+        return builder().setCookieManager(new DefaultCookieManager()).build();
+    }
+
+    private static IonClient.Builder builder() {
+        return new IonClient.Builder()
+                .setAllowedCipherSuites(IonClient.getAvailableCipherSuites())
+                .setVersionTLS(TLS.TLSv1_2)
+                .setGracefulTrustManager();
+    }
+
+    public static long getIsolatedCount() {
+        return isolated.sum();
+    }
+}
@@ -15,11 +15,20 @@ public class TwitchConfiguration {
         return new TwitchConfiguration(plain);
     }
 
+    public static TwitchConfiguration restore(String query) throws TwitchScriptException {
+        return new TwitchConfiguration(query, Twitch.getPatternValue(OPERATION_NAME_PATTERN, query));
+    }
+
     private TwitchConfiguration(String plain) throws TwitchScriptException {
         this.query = Twitch.getPatternValue(QUERY_PATTERN, plain);
         this.operationName = Twitch.getPatternValue(OPERATION_NAME_PATTERN, query);
     }
 
+    private TwitchConfiguration(String query, String operationName) {
+        this.operationName = operationName;
+        this.query = query;
+    }
+
     public String getOperationName() {
         return operationName;
     }
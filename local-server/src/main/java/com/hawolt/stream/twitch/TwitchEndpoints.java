@@ -0,0 +1,27 @@
+package com.hawolt.stream.twitch;
+
+import com.hawolt.Settings;
+
+import java.net.URI;
+
+/**
+ * Base URLs of the upstream Twitch hosts, configurable so local-server can be pointed at a stand-in.
+ */
+public class TwitchEndpoints {
+    public static final String WWW = trim(Settings.TWITCH_WWW);
+    public static final String GQL = trim(Settings.TWITCH_GQL);
+    public static final String USHER = trim(Settings.TWITCH_USHER);
+
+    public static String host(String base) {
+        return URI.create(base).getAuthority();
+    }
+
+    public static String cookieDomain() {
+        String host = URI.create(WWW).getHost();
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+
+    private static String trim(String base) {
+        return base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+    }
+}
@@ -3,34 +3,38 @@ package com.hawolt.stream.twitch;
 import com.hawolt.ionhttp.IonClient;
 import com.hawolt.ionhttp.request.IonRequest;
 import com.hawolt.ionhttp.request.IonResponse;
+import com.hawolt.logger.Logger;
 import com.hawolt.stream.exceptions.BadTwitchChannelException;
+import com.hawolt.stream.exceptions.TwitchClientIdException;
 import com.hawolt.stream.instance.TwitchInstance;
+import com.hawolt.upstream.CircuitBreakers;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class TwitchGQL {
     public static TwitchPlaybackToken getPlaybackAccessTokenGQL(
             IonClient client, TwitchConfiguration configuration, TwitchInstance instance
-    ) throws IOException, BadTwitchChannelException {
+    ) throws IOException, BadTwitchChannelException, TwitchClientIdException {
+        return getPlaybackAccessTokenGQL(client, configuration, instance, "site", "web");
+    }
+
+    public static TwitchPlaybackToken getPlaybackAccessTokenGQL(
+            IonClient client, TwitchConfiguration configuration, TwitchInstance instance, String playerType, String platform
+    ) throws IOException, BadTwitchChannelException, TwitchClientIdException {
         TwitchTokenGQL.PlaybackToken token = TwitchTokenGQL.getPlaybackToken(
                 configuration.getOperationName(),
                 configuration.getQuery(),
-                instance.getChannel()
+                instance.getChannel(),
+                playerType,
+                platform
         );
-        byte[] b = token.convert();
-        IonRequest request = IonRequest.on("https://gql.twitch.tv/gql")
-                .addHeader("Cookie", instance.getCookie())
-                .addHeader("Client-ID", TwitchClientIdProvider.getGlobalClientId())
-                .addHeader("Device-ID", instance.getUniqueId())
-                .addHeader("Content-Type", "text/plain")
-                .addHeader("Accept", "*/*")
-                .addHeader("Host", "gql.twitch.tv")
-                .addHeader("Content-Length", String.valueOf(b.length))
-                .payload(b)
-                .post();
-        try (IonResponse response = client.execute(request)) {
+        try (IonResponse response = CircuitBreakers.GQL.execute(client, request(instance, token.convert()))) {
             return new TwitchPlaybackToken(
                     new JSONObject(
                             new String(
@@ -41,4 +45,52 @@ public class TwitchGQL {
             );
         }
     }
+
+    /**
+     * Requests the playback tokens of several channels as one batched GQL operation list,
+     * channels without a token (offline or unknown) are left out of the result.
+     */
+    public static Map<String, TwitchPlaybackToken> getPlaybackAccessTokensGQL(
+            IonClient client, TwitchConfiguration configuration, TwitchInstance instance, List<String> channels
+    ) throws IOException, TwitchClientIdException {
+        JSONArray operations = new JSONArray();
+        for (String channel : channels) {
+            operations.put(TwitchTokenGQL.getPlaybackToken(
+                    configuration.getOperationName(),
+                    configuration.getQuery(),
+                    channel
+            ));
+        }
+        byte[] b = operations.toString().getBytes(StandardCharsets.UTF_8);
+        try (IonResponse response = CircuitBreakers.GQL.execute(client, request(instance, b))) {
+            JSONArray results = new JSONArray(
+                    new String(
+                            response.body(),
+                            StandardCharsets.UTF_8
+                    )
+            );
+            Map<String, TwitchPlaybackToken> tokens = new HashMap<>();
+            for (int i = 0; i < results.length() && i < channels.size(); i++) {
+                try {
+                    tokens.put(channels.get(i), new TwitchPlaybackToken(results.getJSONObject(i)));
+                } catch (BadTwitchChannelException e) {
+                    Logger.debug("[gql] no playback token for {}", channels.get(i));
+                }
+            }
+            return tokens;
+        }
+    }
+
+    private static IonRequest request(TwitchInstance instance, byte[] b) throws TwitchClientIdException {
+        return IonRequest.on(String.format("%s/gql", TwitchEndpoints.GQL))
+                .addHeader("Cookie", instance.getCookie())
+                .addHeader("Client-ID", TwitchClientIdProvider.getGlobalClientId())
+                .addHeader("Device-ID", instance.getUniqueId())
+                .addHeader("Content-Type", "text/plain")
+                .addHeader("Accept", "*/*")
+                .addHeader("Host", TwitchEndpoints.host(TwitchEndpoints.GQL))
+                .addHeader("Content-Length", String.valueOf(b.length))
+                .payload(b)
+                .post();
+    }
 }
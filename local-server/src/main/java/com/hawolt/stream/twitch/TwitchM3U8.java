@@ -4,6 +4,7 @@ import com.hawolt.ionhttp.IonClient;
 import com.hawolt.ionhttp.request.IonRequest;
 import com.hawolt.ionhttp.request.IonResponse;
 import com.hawolt.stream.exceptions.TwitchStreamOffline;
+import com.hawolt.upstream.CircuitBreakers;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -11,14 +12,14 @@ import java.nio.charset.StandardCharsets;
 public class TwitchM3U8 {
 
     public static TwitchEXTM3U request(IonClient client, TwitchPlaybackToken token) throws IOException, TwitchStreamOffline {
-        String usher = String.format("https://usher.ttvnw.net/api/channel/hls/%s.m3u8", token.channel());
+        String usher = String.format("%s/api/channel/hls/%s.m3u8", TwitchEndpoints.USHER, token.channel());
         IonRequest request = IonRequest.on(usher)
-                .addHeader("Host", "usher.ttvnw.net")
+                .addHeader("Host", TwitchEndpoints.host(TwitchEndpoints.USHER))
                 .addQueryParameter("allow_source", "true")
                 .addQueryParameter("sig", token.signature())
                 .addQueryParameter("token", token.get())
                 .get();
-        try (IonResponse response = client.execute(request)) {
+        try (IonResponse response = CircuitBreakers.USHER.execute(client, request)) {
             String playlist = new String(
                     response.body(),
                     StandardCharsets.UTF_8
@@ -6,6 +6,7 @@ import org.json.JSONObject;
 public class TwitchPlaybackToken {
 
     private final String signature, token, channel;
+    private final long expires;
 
     public TwitchPlaybackToken(JSONObject object) throws BadTwitchChannelException {
         JSONObject data = object.getJSONObject("data");
@@ -13,7 +14,9 @@ public class TwitchPlaybackToken {
         JSONObject token = data.getJSONObject("streamPlaybackAccessToken");
         this.signature = token.getString("signature");
         this.token = token.getString("value");
-        this.channel = new JSONObject(this.token).getString("channel");
+        JSONObject value = new JSONObject(this.token);
+        this.channel = value.getString("channel");
+        this.expires = value.optLong("expires", 0L);
     }
 
     public String signature() {
@@ -24,6 +27,10 @@ public class TwitchPlaybackToken {
         return channel;
     }
 
+    public long expires() {
+        return expires;
+    }
+
     public String get() {
         return token;
     }
@@ -0,0 +1,83 @@
+package com.hawolt.stream.twitch;
+
+import com.hawolt.Settings;
+import com.hawolt.ionhttp.IonClient;
+import com.hawolt.logger.Logger;
+import com.hawolt.metrics.Metrics;
+import com.hawolt.poll.PollScheduler;
+import com.hawolt.stream.exceptions.TwitchStreamOffline;
+import com.hawolt.stream.instance.TwitchInstance;
+import com.hawolt.stream.instance.impl.DefaultInstanceSupplier;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.regex.Pattern;
+
+/**
+ * Fills the token cache for many channels at once, playback tokens are requested in batched GQL calls
+ * of at most {@link Settings#PREWARM_BATCH_SIZE} operations and the master playlists are loaded in parallel,
+ * so opening a pre-warmed channel only costs the media playlist round trip.
+ */
+public class TwitchPrewarm {
+    private static final Pattern LOGIN_PATTERN = Pattern.compile("[a-z0-9_]{1,25}");
+    // concurrent prewarm requests beyond the queue load their master playlists on the request thread
+    private static final ExecutorService LOADER = PollScheduler.bounded(
+            "prewarm",
+            Settings.PREWARM_THREADS,
+            Settings.PREWARM_LIMIT,
+            new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+
+    public static Map<String, String> prewarm(Collection<String> usernames) throws Exception {
+        Map<String, String> result = new LinkedHashMap<>();
+        TwitchTokenCache cache = TwitchTokenCache.getGlobalCache();
+        List<String> channels = new ArrayList<>();
+        for (String username : usernames) {
+            String channel = username.toLowerCase();
+            if (result.size() >= Settings.PREWARM_LIMIT) break;
+            if (!LOGIN_PATTERN.matcher(channel).matches() || result.containsKey(channel)) continue;
+            if (cache.getPlaylist(channel) != null) {
+                result.put(channel, "cached");
+            } else {
+                result.put(channel, "offline");
+                channels.add(channel);
+            }
+        }
+        if (channels.isEmpty()) return result;
+        IonClient client = TwitchClientPool.getSharedClient();
+        TwitchInstance device = new DefaultInstanceSupplier(channels.get(0)).getInstance(TwitchClientPool.createIsolatedClient());
+        TwitchConfiguration configuration = Twitch.getConfiguration(client, device.getChannel());
+        Map<String, CompletableFuture<String>> masters = new LinkedHashMap<>();
+        for (int i = 0; i < channels.size(); i += Settings.PREWARM_BATCH_SIZE) {
+            List<String> batch = channels.subList(i, Math.min(channels.size(), i + Settings.PREWARM_BATCH_SIZE));
+            long start = System.nanoTime();
+            Map<String, TwitchPlaybackToken> tokens = TwitchGQL.getPlaybackAccessTokensGQL(client, configuration, device, batch);
+            Metrics.GQL_TOKEN.since(start);
+            for (Map.Entry<String, TwitchPlaybackToken> entry : tokens.entrySet()) {
+                masters.put(entry.getKey(), CompletableFuture.supplyAsync(
+                        () -> load(client, cache, entry.getKey(), entry.getValue()),
+                        LOADER
+                ));
+            }
+        }
+        masters.forEach((channel, master) -> result.put(channel, master.join()));
+        return result;
+    }
+
+    private static String load(IonClient client, TwitchTokenCache cache, String channel, TwitchPlaybackToken token) {
+        long start = System.nanoTime();
+        try {
+            TwitchEXTM3U playlist = TwitchM3U8.request(client, token);
+            Metrics.USHER_MASTER.since(start);
+            cache.put(channel, token, playlist);
+            return "live";
+        } catch (TwitchStreamOffline e) {
+            return "offline";
+        } catch (Exception e) {
+            Logger.debug("failed to pre-warm {}: {}", channel, e.getMessage());
+            return "error";
+        }
+    }
+}
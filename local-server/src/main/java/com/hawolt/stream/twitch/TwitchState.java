@@ -0,0 +1,204 @@
+package com.hawolt.stream.twitch;
+
+import com.hawolt.Settings;
+import com.hawolt.logger.Logger;
+import com.hawolt.poll.PollScheduler;
+import com.hawolt.stream.exceptions.TwitchScriptException;
+import com.hawolt.stream.instance.TwitchInstance;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Warm-start state kept on disk between restarts: the client ID, the GQL configuration and the device
+ * cookies per channel, each stored with the time it was obtained. Entries are validated when loaded and
+ * discarded once older than their maximum age, changes are written to disk in the background by replacing
+ * the file atomically.
+ */
+public class TwitchState {
+    private static final int VERSION = 1;
+    private static final int MAX_INSTANCES = 64;
+    private static final long WRITE_DELAY = TimeUnit.SECONDS.toMillis(1);
+    private static final long CLIENT_ID_MAX_AGE = TimeUnit.HOURS.toMillis(24);
+    private static final long CONFIGURATION_MAX_AGE = TimeUnit.HOURS.toMillis(24);
+    private static final long INSTANCE_MAX_AGE = TimeUnit.DAYS.toMillis(7);
+    private static final Pattern CLIENT_ID_PATTERN = Pattern.compile("[A-Za-z0-9]{16,64}");
+    private static final TwitchState INSTANCE = new TwitchState(Settings.STATE_FILE.isEmpty() ? null : Paths.get(Settings.STATE_FILE));
+
+    public static TwitchState getGlobalState() {
+        return INSTANCE;
+    }
+
+    private final Map<String, Entry<TwitchInstance>> instances = new HashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Path path;
+
+    private Entry<String> clientId;
+    private Entry<TwitchConfiguration> configuration;
+
+    public TwitchState(Path path) {
+        this.path = path;
+        if (path != null && Files.exists(path)) load();
+    }
+
+    private void load() {
+        try {
+            JSONObject object = new JSONObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+            if (object.optLong("version", -1L) != VERSION) {
+                Logger.debug("ignoring state file with unknown version");
+                return;
+            }
+            long now = System.currentTimeMillis();
+            JSONObject client = object.optJSONObject("clientId");
+            if (client != null) {
+                long timestamp = client.optLong("timestamp", 0L);
+                String value = client.optString("value", "");
+                if (now - timestamp < CLIENT_ID_MAX_AGE && CLIENT_ID_PATTERN.matcher(value).matches()) {
+                    this.clientId = new Entry<>(value, timestamp);
+                }
+            }
+            JSONObject configuration = object.optJSONObject("configuration");
+            if (configuration != null) {
+                long timestamp = configuration.optLong("timestamp", 0L);
+                if (now - timestamp < CONFIGURATION_MAX_AGE) {
+                    this.configuration = new Entry<>(TwitchConfiguration.restore(configuration.getString("query")), timestamp);
+                }
+            }
+            JSONObject instances = object.optJSONObject("instances");
+            if (instances != null) {
+                for (String channel : instances.keySet()) {
+                    JSONObject instance = instances.getJSONObject(channel);
+                    long timestamp = instance.optLong("timestamp", 0L);
+                    String id = instance.optString("id", ""), cookie = instance.optString("cookie", "");
+                    if (now - timestamp >= INSTANCE_MAX_AGE || id.isEmpty() || !cookie.contains(id)) continue;
+                    this.instances.put(channel, new Entry<>(new TwitchInstance(channel, id, cookie), timestamp));
+                }
+            }
+            Logger.debug("restored state for {} channels", this.instances.size());
+        } catch (IOException | JSONException | TwitchScriptException e) {
+            Logger.error("Failed to load state file, starting cold: {}", e.getMessage());
+        }
+    }
+
+    public synchronized Entry<String> getClientId() {
+        return clientId;
+    }
+
+    public synchronized Entry<TwitchConfiguration> getConfiguration() {
+        return configuration;
+    }
+
+    public synchronized TwitchInstance getInstance(String channel) {
+        Entry<TwitchInstance> entry = instances.get(channel.toLowerCase());
+        if (entry == null || System.currentTimeMillis() - entry.timestamp >= INSTANCE_MAX_AGE) return null;
+        return entry.value;
+    }
+
+    public void putClientId(String value) {
+        synchronized (this) {
+            this.clientId = new Entry<>(value, System.currentTimeMillis());
+        }
+        schedule();
+    }
+
+    public void putConfiguration(TwitchConfiguration value) {
+        synchronized (this) {
+            this.configuration = new Entry<>(value, System.currentTimeMillis());
+        }
+        schedule();
+    }
+
+    public void putInstance(TwitchInstance value) {
+        synchronized (this) {
+            instances.put(value.getChannel().toLowerCase(), new Entry<>(value, System.currentTimeMillis()));
+            while (instances.size() > MAX_INSTANCES) {
+                instances.entrySet().stream()
+                        .min(Comparator.comparingLong(entry -> entry.getValue().timestamp))
+                        .ifPresent(entry -> instances.remove(entry.getKey()));
+            }
+        }
+        schedule();
+    }
+
+    public synchronized void invalidateInstance(String channel) {
+        if (instances.remove(channel.toLowerCase()) != null) schedule();
+    }
+
+    private void schedule() {
+        if (path == null || !scheduled.compareAndSet(false, true)) return;
+        PollScheduler.getGlobalScheduler().register(() -> {
+            scheduled.set(false);
+            write();
+            return -1L;
+        }, WRITE_DELAY);
+    }
+
+    private void write() {
+        String content = serialize();
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Path temporary = Files.createTempFile(parent, "state", ".tmp");
+            Files.write(temporary, content.getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Logger.error("Failed to write state file: {}", e.getMessage());
+        }
+    }
+
+    private synchronized String serialize() {
+        JSONObject object = new JSONObject();
+        object.put("version", VERSION);
+        if (clientId != null) {
+            object.put("clientId", new JSONObject()
+                    .put("value", clientId.value)
+                    .put("timestamp", clientId.timestamp));
+        }
+        if (configuration != null) {
+            object.put("configuration", new JSONObject()
+                    .put("query", configuration.value.getQuery())
+                    .put("timestamp", configuration.timestamp));
+        }
+        JSONObject instances = new JSONObject();
+        for (Map.Entry<String, Entry<TwitchInstance>> entry : this.instances.entrySet()) {
+            TwitchInstance instance = entry.getValue().value;
+            instances.put(entry.getKey(), new JSONObject()
+                    .put("id", instance.getUniqueId())
+                    .put("cookie", instance.getCookie())
+                    .put("timestamp", entry.getValue().timestamp));
+        }
+        object.put("instances", instances);
+        return object.toString();
+    }
+
+    public static class Entry<T> {
+        private final T value;
+        private final long timestamp;
+
+        private Entry(T value, long timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
@@ -1,22 +1,34 @@
 package com.hawolt.stream.twitch;
 
+import com.hawolt.Settings;
 import com.hawolt.ionhttp.IonClient;
-import com.hawolt.ionhttp.cookies.impl.DefaultCookieManager;
-import com.hawolt.ionhttp.misc.TLS;
+import com.hawolt.metrics.Histogram;
+import com.hawolt.metrics.Metrics;
+import com.hawolt.poll.VirtualThreads;
+import com.hawolt.stream.exceptions.BadTwitchChannelException;
 import com.hawolt.stream.exceptions.TwitchException;
 import com.hawolt.stream.exceptions.TwitchPlaylistException;
 import com.hawolt.stream.instance.TwitchInstance;
 import com.hawolt.stream.instance.TwitchInstanceProvider;
 import com.hawolt.stream.instance.impl.BlankInstanceProvider;
 import com.hawolt.stream.playlist.PlaylistM3U8;
+import org.json.JSONException;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.*;
 
 public class TwitchStream {
+    private static final ExecutorService UPSTREAM = VirtualThreads.newExecutor(
+            "upstream",
+            Settings.UPSTREAM_THREADS,
+            Settings.UPSTREAM_QUEUE
+    );
+
     private final TwitchInstanceProvider provider;
     private final IonClient client;
 
-    private TwitchInstance instance;
+    private volatile TwitchInstance instance;
 
     public static TwitchStream load(String channel) {
         return new TwitchStream(new BlankInstanceProvider(channel));
@@ -28,23 +40,155 @@ public class TwitchStream {
 
     private TwitchStream(TwitchInstanceProvider provider) {
         this.provider = provider;
-        this.client = new IonClient.Builder()
-                .setAllowedCipherSuites(IonClient.getAvailableCipherSuites())
-                .setCookieManager(new DefaultCookieManager())
-                .setVersionTLS(TLS.TLSv1_2)
-                .setGracefulTrustManager()
-                .build();
+        this.client = TwitchClientPool.getSharedClient();
     }
 
     public TwitchEXTM3U load() throws TwitchException, IOException {
-        if (instance == null) instance = provider.getInstance(client);
-        TwitchConfiguration configuration = Twitch.getConfiguration(client, instance.getChannel());
-        TwitchPlaybackToken token = TwitchGQL.getPlaybackAccessTokenGQL(
-                client,
-                configuration,
-                instance
+        try {
+            return loadAsync().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TwitchException) throw (TwitchException) cause;
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof TimeoutException) throw new IOException("STAGE_TIMEOUT", cause);
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the upstream chain without blocking the caller, the channel page and the configuration are
+     * requested concurrently and every stage fails with a {@link TimeoutException} after the stage timeout.
+     * Cancelling the returned future skips all stages that have not started yet and interrupts running ones.
+     */
+    public CompletableFuture<TwitchEXTM3U> loadAsync() {
+        TwitchTokenCache cache = TwitchTokenCache.getGlobalCache();
+        TwitchEXTM3U cached = cache.getPlaylist(provider.getChannel());
+        if (cached != null) {
+            Metrics.TOKEN_CACHE_HIT.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        Metrics.TOKEN_CACHE_MISS.increment();
+        Chain chain = new Chain();
+        TwitchPlaybackToken token = cache.getToken(provider.getChannel());
+        CompletableFuture<TwitchPlaybackToken> authorization = token != null ? CompletableFuture.completedFuture(token) : token(chain);
+        CompletableFuture<TwitchEXTM3U> result = authorization.thenCompose(playback -> stage(chain, Metrics.USHER_MASTER, () -> {
+            TwitchEXTM3U playlist = TwitchM3U8.request(client, playback);
+            cache.put(provider.getChannel(), playback, playlist);
+            return playlist;
+        }));
+        result.whenComplete((playlist, throwable) -> {
+            if (throwable instanceof CancellationException) chain.cancel();
+        });
+        return result;
+    }
+
+    private CompletableFuture<TwitchInstance> device(Chain chain) {
+        TwitchInstance current = instance;
+        if (current != null) return CompletableFuture.completedFuture(current);
+        return stage(
+                chain,
+                Metrics.CHANNEL_PAGE,
+                () -> provider.getInstance(TwitchClientPool.createIsolatedClient())
         );
-        return TwitchM3U8.request(client, token);
+    }
+
+    private CompletableFuture<TwitchConfiguration> configuration(Chain chain) {
+        return stage(
+                chain,
+                Metrics.CONFIGURATION,
+                () -> Twitch.getConfiguration(client, provider.getChannel())
+        );
+    }
+
+    private CompletableFuture<TwitchPlaybackToken> token(Chain chain) {
+        CompletableFuture<TwitchInstance> device = device(chain);
+        CompletableFuture<TwitchConfiguration> configuration = configuration(chain);
+        return device.thenCompose(resolved -> {
+            this.instance = resolved;
+            return configuration.thenCompose(query -> stage(chain, Metrics.GQL_TOKEN, () -> {
+                try {
+                    return TwitchGQL.getPlaybackAccessTokenGQL(
+                            client,
+                            query,
+                            resolved
+                    );
+                } catch (BadTwitchChannelException | JSONException e) {
+                    // a restored device cookie might be the culprit, the next attempt visits the channel page again
+                    TwitchState.getGlobalState().invalidateInstance(provider.getChannel());
+                    this.instance = null;
+                    throw e;
+                }
+            }));
+        });
+    }
+
+    /**
+     * Submits a single stage of the chain, a stage is not started once the chain has been cancelled and
+     * a running stage is interrupted when the chain is cancelled or the stage times out.
+     */
+    private static <T> CompletableFuture<T> stage(Chain chain, Histogram histogram, Callable<T> callable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (chain.cancelled) {
+            future.cancel(false);
+            return future;
+        }
+        Future<?> task;
+        try {
+            task = UPSTREAM.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    future.complete(callable.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    histogram.since(start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new IOException("UPSTREAM_QUEUE_FULL", e));
+            return future;
+        }
+        chain.running.put(task, future);
+        future.whenComplete((value, throwable) -> {
+            chain.running.remove(task);
+            if (throwable instanceof TimeoutException) task.cancel(true);
+        });
+        if (chain.cancelled) task.cancel(true);
+        return future.orTimeout(Settings.STAGE_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    private static class Chain {
+        private final Map<Future<?>, CompletableFuture<?>> running = new ConcurrentHashMap<>();
+        private volatile boolean cancelled;
+
+        private void cancel() {
+            this.cancelled = true;
+            running.forEach((task, future) -> {
+                task.cancel(true);
+                future.cancel(false);
+            });
+        }
+    }
+
+    /**
+     * Requests a separate playlist with a token for another player type and platform through the same stages
+     * as {@link #loadAsync()}, the result bypasses the token cache since it must not replace the playlist of
+     * the regular player. Cancelling the returned future cancels the stages that are still pending.
+     */
+    public CompletableFuture<TwitchEXTM3U> loadStandby(String playerType, String platform) {
+        Chain chain = new Chain();
+        CompletableFuture<TwitchInstance> device = device(chain);
+        CompletableFuture<TwitchConfiguration> configuration = configuration(chain);
+        CompletableFuture<TwitchEXTM3U> result = device.thenCompose(resolved -> configuration.thenCompose(query -> stage(
+                chain,
+                Metrics.STANDBY_TOKEN,
+                () -> TwitchGQL.getPlaybackAccessTokenGQL(client, query, resolved, playerType, platform)
+        ))).thenCompose(playback -> stage(chain, Metrics.STANDBY_MASTER, () -> TwitchM3U8.request(client, playback)));
+        result.whenComplete((playlist, throwable) -> {
+            if (throwable instanceof CancellationException) chain.cancel();
+        });
+        return result;
     }
 
     public PlaylistM3U8 open() throws TwitchException, IOException {
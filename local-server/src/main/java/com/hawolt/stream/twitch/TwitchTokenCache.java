@@ -0,0 +1,76 @@
+package com.hawolt.stream.twitch;
+
+import com.hawolt.Settings;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded LRU cache of playback tokens and the master playlists requested with them,
+ * entries are only handed out while the token is valid for at least the configured safety margin.
+ */
+public class TwitchTokenCache {
+    private static final TwitchTokenCache INSTANCE = new TwitchTokenCache(
+            Settings.TOKEN_CACHE_SIZE,
+            TimeUnit.SECONDS.toMillis(Settings.TOKEN_SAFETY_MARGIN)
+    );
+
+    public static TwitchTokenCache getGlobalCache() {
+        return INSTANCE;
+    }
+
+    private final Map<String, Entry> entries;
+    private final long margin;
+
+    public TwitchTokenCache(int capacity, long margin) {
+        this.margin = margin;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized void put(String channel, TwitchPlaybackToken token, TwitchEXTM3U playlist) {
+        if (!isValid(token)) return;
+        entries.put(channel.toLowerCase(), new Entry(token, playlist));
+    }
+
+    public synchronized TwitchPlaybackToken getToken(String channel) {
+        Entry entry = get(channel);
+        return entry != null ? entry.token : null;
+    }
+
+    public synchronized TwitchEXTM3U getPlaylist(String channel) {
+        Entry entry = get(channel);
+        return entry != null ? entry.playlist : null;
+    }
+
+    public synchronized void invalidate(String channel) {
+        entries.remove(channel.toLowerCase());
+    }
+
+    private Entry get(String channel) {
+        String key = channel.toLowerCase();
+        Entry entry = entries.get(key);
+        if (entry == null || isValid(entry.token)) return entry;
+        entries.remove(key);
+        return null;
+    }
+
+    private boolean isValid(TwitchPlaybackToken token) {
+        return TimeUnit.SECONDS.toMillis(token.expires()) - margin > System.currentTimeMillis();
+    }
+
+    private static class Entry {
+        private final TwitchPlaybackToken token;
+        private final TwitchEXTM3U playlist;
+
+        private Entry(TwitchPlaybackToken token, TwitchEXTM3U playlist) {
+            this.playlist = playlist;
+            this.token = token;
+        }
+    }
+}
@@ -13,12 +13,12 @@ public class TwitchTokenGQL {
     }
 
     public static class PlaybackToken extends Token {
-        private PlaybackToken(String operationName, String query, String channel) {
+        private PlaybackToken(String operationName, String query, String channel, String playerType, String platform) {
             put("operationName", operationName);
             put("query", query);
             JSONObject variables = new JSONObject();
-            variables.put("playerType", "site");
-            variables.put("platform", "web");
+            variables.put("playerType", playerType);
+            variables.put("platform", platform);
             variables.put("login", channel);
             variables.put("isLive", true);
             variables.put("isVod", false);
@@ -28,6 +28,10 @@ public class TwitchTokenGQL {
     }
 
     public static PlaybackToken getPlaybackToken(String operationName, String query, String channel) {
-        return new PlaybackToken(operationName, query, channel);
+        return getPlaybackToken(operationName, query, channel, "site", "web");
+    }
+
+    public static PlaybackToken getPlaybackToken(String operationName, String query, String channel, String playerType, String platform) {
+        return new PlaybackToken(operationName, query, channel, playerType, platform);
     }
 }
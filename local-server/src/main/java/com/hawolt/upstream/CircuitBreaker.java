@@ -0,0 +1,100 @@
+package com.hawolt.upstream;
+
+import com.hawolt.Settings;
+import com.hawolt.ionhttp.IonClient;
+import com.hawolt.ionhttp.request.IonRequest;
+import com.hawolt.ionhttp.request.IonResponse;
+import com.hawolt.logger.Logger;
+import com.hawolt.metrics.Counter;
+import com.hawolt.metrics.Metrics;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Guards one upstream host. Consecutive failures (I/O errors, 429 and 5xx responses) open the breaker,
+ * while open every request fails fast with a {@link CircuitOpenException}. Once the open period is over a
+ * single trial request is let through, the open period doubles with jitter every time the trial fails.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Counter trips;
+    private final String name;
+
+    private State state = State.CLOSED;
+    private int failures, consecutiveTrips;
+    private long openUntil;
+    private boolean trial;
+
+    public CircuitBreaker(String name) {
+        this.trips = Metrics.counter("noads_breaker_trips_total", String.format("host=\"%s\"", name));
+        this.name = name;
+    }
+
+    public IonResponse execute(IonClient client, IonRequest request) throws IOException {
+        acquire();
+        RetryBudget.getGlobalBudget().onRequest();
+        boolean success = false;
+        try {
+            IonResponse response = client.execute(request);
+            success = response.code() < 500 && response.code() != 429;
+            return response;
+        } finally {
+            if (success) onSuccess();
+            else onFailure();
+        }
+    }
+
+    private synchronized void acquire() throws CircuitOpenException {
+        if (state == State.CLOSED) return;
+        long now = System.currentTimeMillis();
+        if (state == State.OPEN && now >= openUntil) {
+            this.state = State.HALF_OPEN;
+            this.trial = false;
+        }
+        if (state == State.HALF_OPEN && !trial) {
+            this.trial = true;
+            return;
+        }
+        throw new CircuitOpenException(String.format("CIRCUIT_OPEN:%s", name), Math.max(0L, openUntil - now));
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) Logger.info("[breaker] {} closed", name);
+        this.state = State.CLOSED;
+        this.consecutiveTrips = 0;
+        this.failures = 0;
+        this.trial = false;
+    }
+
+    private synchronized void onFailure() {
+        this.failures++;
+        if (state == State.OPEN) return;
+        if (state == State.CLOSED && failures < Settings.BREAKER_FAILURES) return;
+        long period = Math.min(Settings.BREAKER_OPEN_MAXIMUM, Settings.BREAKER_OPEN << Math.min(consecutiveTrips, 10));
+        period += ThreadLocalRandom.current().nextLong(period / 4 + 1);
+        this.consecutiveTrips++;
+        this.openUntil = System.currentTimeMillis() + period;
+        this.state = State.OPEN;
+        this.trial = false;
+        trips.increment();
+        Logger.warn("[breaker] {} open for {}ms after {} failures", name, period, failures);
+    }
+
+    public synchronized JSONObject describe() {
+        JSONObject object = new JSONObject();
+        object.put("state", state.name());
+        object.put("failures", failures);
+        object.put("trips", trips.get());
+        object.put("retryAfter", state == State.CLOSED ? 0L : Math.max(0L, openUntil - System.currentTimeMillis()));
+        return object;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
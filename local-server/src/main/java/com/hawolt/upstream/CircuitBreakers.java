@@ -0,0 +1,24 @@
+package com.hawolt.upstream;
+
+import org.json.JSONObject;
+
+/**
+ * One breaker per upstream Twitch host, shared by every instance. Media playlists and segments are served
+ * from many edge hosts, they are grouped into one breaker for the weaver and one for the CDN hosts.
+ */
+public class CircuitBreakers {
+    public static final CircuitBreaker WWW = new CircuitBreaker("www");
+    public static final CircuitBreaker GQL = new CircuitBreaker("gql");
+    public static final CircuitBreaker USHER = new CircuitBreaker("usher");
+    public static final CircuitBreaker WEAVER = new CircuitBreaker("weaver");
+    public static final CircuitBreaker CDN = new CircuitBreaker("cdn");
+
+    public static JSONObject describe() {
+        JSONObject object = new JSONObject();
+        for (CircuitBreaker breaker : new CircuitBreaker[]{WWW, GQL, USHER, WEAVER, CDN}) {
+            object.put(breaker.getName(), breaker.describe());
+        }
+        object.put("retryBudget", RetryBudget.getGlobalBudget().getBalance());
+        return object;
+    }
+}
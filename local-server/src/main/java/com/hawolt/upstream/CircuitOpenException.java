@@ -0,0 +1,19 @@
+package com.hawolt.upstream;
+
+import java.io.IOException;
+
+public class CircuitOpenException extends IOException {
+    private final long retryAfter;
+
+    public CircuitOpenException(String message, long retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return milliseconds until the breaker lets the next trial request through
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,56 @@
+package com.hawolt.upstream;
+
+import com.hawolt.Settings;
+import com.hawolt.metrics.Counter;
+import com.hawolt.metrics.Metrics;
+
+/**
+ * Token bucket shared by all instances, every upstream request deposits a fraction of a retry and every
+ * retry withdraws a whole one. A small per-second allowance keeps retries possible while nothing succeeds,
+ * so an outage causes a bounded trickle of retries instead of one retry per instance.
+ */
+public class RetryBudget {
+    private static final RetryBudget INSTANCE = new RetryBudget(Settings.RETRY_RATIO, Settings.RETRY_MINIMUM);
+    private static final double CAPACITY = 50D;
+
+    public static RetryBudget getGlobalBudget() {
+        return INSTANCE;
+    }
+
+    private final Counter allowed = Metrics.counter("noads_upstream_retries_total", "result=\"allowed\"");
+    private final Counter denied = Metrics.counter("noads_upstream_retries_total", "result=\"denied\"");
+    private final double ratio, minimum;
+
+    private long refill = System.currentTimeMillis();
+    private double balance;
+
+    private RetryBudget(double ratio, double minimum) {
+        this.minimum = minimum;
+        this.ratio = ratio;
+        this.balance = Math.min(CAPACITY, minimum);
+    }
+
+    public synchronized void onRequest() {
+        this.balance = Math.min(CAPACITY, balance + ratio);
+    }
+
+    /**
+     * @return whether the caller may retry, a denied retry should be deferred to its next backoff
+     */
+    public synchronized boolean tryRetry() {
+        long now = System.currentTimeMillis();
+        this.balance = Math.min(CAPACITY, balance + (now - refill) * minimum / 1000D);
+        this.refill = now;
+        if (balance < 1D) {
+            denied.increment();
+            return false;
+        }
+        this.balance -= 1D;
+        allowed.increment();
+        return true;
+    }
+
+    public synchronized double getBalance() {
+        return balance;
+    }
+}
@@ -0,0 +1,9 @@
+package com.hawolt.upstream;
+
+import java.io.IOException;
+
+public class RetryBudgetExhaustedException extends IOException {
+    public RetryBudgetExhaustedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,41 @@
+package com.hawolt.stream.playlist;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Runs the RFC 8216 attribute list conformance corpus against the tokenizer, every case is a tag line followed
+ * by the expected parse result.
+ */
+class M3U8Test {
+
+    @TestFactory
+    List<DynamicTest> conformance() throws IOException {
+        List<String> corpus = new ArrayList<>();
+        for (String line : fixture("attributes.txt").split("\n")) {
+            if (!line.startsWith("# ")) corpus.add(line);
+        }
+        List<DynamicTest> tests = new ArrayList<>();
+        for (int i = 0; i + 1 < corpus.size(); i += 2) {
+            String line = corpus.get(i), expected = corpus.get(i + 1);
+            tests.add(DynamicTest.dynamicTest(line, () -> assertEquals(expected, new M3U8(line).toString())));
+        }
+        return tests;
+    }
+
+    private static String fixture(String name) throws IOException {
+        try (InputStream stream = M3U8Test.class.getResourceAsStream("/fixtures/" + name)) {
+            assertNotNull(stream, name);
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}